@@ -0,0 +1,101 @@
+import net.datastructures.IndexedDaryHeap;
+import net.datastructures.Vertex;
+
+/**
+ * AStar Class answers single source-to-destination queries on a RoadGraph with A* search:
+ * Dijkstra's algorithm with every city keyed by its path length from the source plus a
+ * LowerBound on its remaining cost, so the search is pulled towards the destination and
+ * stops as soon as the destination is settled.
+ *
+ * By default the coordinate-based CoordinateBound is used for each metric.
+ * The search arrays are reused between queries and only the cities a query reaches are reset
+ * (see SearchWorkspace), so an instance must not be shared between threads.
+ */
+
+public class AStar {
+	private final RoadGraph graph;					//snapshot being searched
+	private final LowerBound distanceBound, timeBound;	//default heuristics for each metric
+	private final IndexedDaryHeap queue;			//cities keyed by path length plus estimate
+	private final SearchWorkspace work;				//path length from source and previous city id of each reached city
+
+	/**
+	 * Constructor for the AStar class, using the City coordinates as heuristic
+	 * @param graph is the snapshot to answer queries on
+	 */
+	public AStar(RoadGraph graph) {
+		this(graph, new CoordinateBound(graph, Metric.DISTANCE), new CoordinateBound(graph, Metric.TIME));
+	}
+
+	/**
+	 * Constructor for the AStar class with custom default heuristics
+	 * @param graph is the snapshot to answer queries on
+	 * @param distanceBound is the heuristic used for DISTANCE queries
+	 * @param timeBound is the heuristic used for TIME queries
+	 */
+	public AStar(RoadGraph graph, LowerBound distanceBound, LowerBound timeBound) {
+		this.graph = graph;
+		this.distanceBound = distanceBound;
+		this.timeBound = timeBound;
+		queue = new IndexedDaryHeap(graph.numVertices());
+		work = new SearchWorkspace(graph.numVertices());
+	}
+
+	/**
+	 * Finds a shortest route between two City vertices using the default heuristic for the metric
+	 * @param source is the City the route starts at
+	 * @param destination is the City the route ends at
+	 * @param metric is the weight to minimize
+	 * @return the shortest route, not found if destination is unreachable
+	 */
+	public RouteResult route(Vertex<City> source, Vertex<City> destination, Metric metric) {
+		return route(graph.id(source), graph.id(destination), metric);
+	}
+
+	/**
+	 * Finds a shortest route between two city ids using the default heuristic for the metric
+	 * @param source is the id of the City the route starts at
+	 * @param destination is the id of the City the route ends at
+	 * @param metric is the weight to minimize
+	 * @return the shortest route, not found if destination is unreachable
+	 */
+	public RouteResult route(int source, int destination, Metric metric) {
+		return route(source, destination, (metric == Metric.DISTANCE) ? distanceBound : timeBound);
+	}
+
+	/**
+	 * Finds a shortest route between two city ids, minimizing the metric of the given heuristic
+	 * @param source is the id of the City the route starts at
+	 * @param destination is the id of the City the route ends at
+	 * @param bound is an admissible heuristic for the metric to minimize
+	 * @return the shortest route, not found if destination is unreachable
+	 */
+	public RouteResult route(int source, int destination, LowerBound bound) {
+		Metric metric = bound.metric();
+		double[] weights = graph.weights(metric);		//arc weights looked up once per query
+		work.reset();
+		queue.clear();
+
+		work.set(source, 0.0, -1);
+		queue.insert(source, bound.estimate(source, destination));
+		int settled = 0;
+
+		while (!queue.isEmpty()) {
+			int u = queue.removeMin();
+			settled++;
+			if (u == destination)		//destination settled, its path length is final
+				return new RouteResult(graph, metric, work.cost(u), work.path(destination), settled);
+
+			double pathWeight = work.cost(u);
+			for (int arc = graph.firstArc(u); arc < graph.endArc(u); arc++) {
+				int v = graph.head(arc);
+				double weight = pathWeight + weights[arc];
+				if (weight < work.cost(v)) {		//shorter path to v found
+					work.set(v, weight, u);
+					queue.insertOrDecrease(v, weight + bound.estimate(v, destination));
+				}
+			}
+		}
+		return RouteResult.unreachable(graph, metric, settled);
+	}
+
+}
@@ -0,0 +1,238 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * AllPairsTable Class holds precomputed shortest path costs and predecessors between every pair
+ * of cities, for both metrics, so a point-to-point query is a table lookup plus a path walk.
+ *
+ * The single-source searches are run in parallel on a fork-join pool, each worker reusing its own
+ * Dijkstra arrays. Costs are stored as floats and predecessors as 2-byte ids when the graph has
+ * fewer than 65535 cities (4-byte ids otherwise), all in one flat buffer with this layout:
+ *   header (magic, version, cities, arcs, fingerprint, predecessor width)
+ *   for each metric: float cost[source][destination], then predecessor[source][destination]
+ * The buffer can be saved to a file and memory-mapped at startup instead of being recomputed.
+ * Lookups never modify the table, so one instance can be shared between threads.
+ */
+
+public class AllPairsTable {
+	private static final int FILE_MAGIC = 0x41505331;	//"APS1", identifies an all-pairs file
+	private static final int HEADER_BYTES = 32;
+	private static final int SOURCES_PER_TASK = 8;		//sources each fork-join leaf task searches from
+
+	private final RoadGraph graph;		//snapshot the table was computed on
+	private final ByteBuffer table;		//header and matrices, on the heap or memory-mapped
+	private final int n;				//number of cities
+	private final int predWidth;		//bytes per predecessor entry, 2 or 4
+
+	/**
+	 * Constructor for the AllPairsTable class, computes the table on the common fork-join pool
+	 * @param graph is the snapshot to compute shortest paths on
+	 */
+	public AllPairsTable(RoadGraph graph) {
+		this(graph, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor for the AllPairsTable class, computes the table on the given pool
+	 * @param graph is the snapshot to compute shortest paths on
+	 * @param pool is the fork-join pool the single-source searches run on
+	 * @throws IllegalArgumentException if the table would not fit in a single buffer
+	 */
+	public AllPairsTable(RoadGraph graph, ForkJoinPool pool) throws IllegalArgumentException {
+		this.graph = graph;
+		n = graph.numVertices();
+		predWidth = (n < 0xFFFF) ? 2 : 4;
+		table = ByteBuffer.allocate(tableBytes(n, predWidth));
+		table.putInt(0, FILE_MAGIC);
+		table.putInt(4, 1);
+		table.putInt(8, n);
+		table.putInt(12, graph.numArcs());
+		table.putLong(16, graph.fingerprint());
+		table.putInt(24, predWidth);
+		pool.invoke(new Rows(0, n));
+	}
+
+	/**
+	 * Constructor used when mapping a saved table
+	 */
+	private AllPairsTable(RoadGraph graph, ByteBuffer table) {
+		this.graph = graph;
+		this.table = table;
+		n = table.getInt(8);
+		predWidth = table.getInt(24);
+	}
+
+	/**
+	 * Fork-join task computing the table rows of a range of source cities
+	 */
+	private class Rows extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int from, to;		//sources from (inclusive) to (exclusive)
+
+		Rows(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > SOURCES_PER_TASK) {		//split the range in half
+				int mid = (from + to) >>> 1;
+				invokeAll(new Rows(from, mid), new Rows(mid, to));
+				return;
+			}
+			Dijkstra search = new Dijkstra(graph);	//one workspace for the whole leaf
+			for (int source = from; source < to; source++)
+				for (Metric metric : Metric.values())
+					writeRow(search.tree(source, metric));
+		}
+	}
+
+	/**
+	 * Copies one shortest path tree into its row of the cost and predecessor matrices
+	 * Rows do not overlap, so leaf tasks write them concurrently with absolute puts
+	 */
+	private void writeRow(ShortestPathTree tree) {
+		int source = tree.getSource();
+		long costRow = costOffset(tree.getMetric(), source, 0);
+		long predRow = predOffset(tree.getMetric(), source, 0);
+		for (int v = 0; v < n; v++) {
+			table.putFloat((int) (costRow + 4L * v), (float) tree.cost(v));
+			if (predWidth == 2)
+				table.putChar((int) (predRow + 2L * v), (char) tree.prev(v));	//-1 is stored as 0xFFFF
+			else
+				table.putInt((int) (predRow + 4L * v), tree.prev(v));
+		}
+	}
+
+	/**
+	 * @return snapshot the table was computed on
+	 */
+	public RoadGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @param source is the id of the City a route starts at
+	 * @param destination is the id of the City a route ends at
+	 * @param metric is the weight of the route
+	 * @return shortest path cost rounded to float precision, infinity if unreachable
+	 */
+	public double cost(int source, int destination, Metric metric) {
+		return table.getFloat((int) costOffset(metric, source, destination));
+	}
+
+	/**
+	 * @return id of the city before @param destination on the shortest path from @param source
+	 * 		under @param metric, -1 if destination is the source or unreachable
+	 */
+	public int prev(int source, int destination, Metric metric) {
+		int offset = (int) predOffset(metric, source, destination);
+		if (predWidth == 2) {
+			char prev = table.getChar(offset);
+			return (prev == 0xFFFF) ? -1 : prev;
+		}
+		return table.getInt(offset);
+	}
+
+	/**
+	 * Reads a shortest route off the table by walking the predecessor row of the source
+	 * @param source is the id of the City the route starts at
+	 * @param destination is the id of the City the route ends at
+	 * @param metric is the weight to minimize
+	 * @return the shortest route with its exact cost, not found if destination is unreachable
+	 */
+	public RouteResult route(int source, int destination, Metric metric) {
+		if (source != destination && prev(source, destination, metric) < 0)
+			return RouteResult.unreachable(graph, metric, 0);
+		int length = 1;
+		for (int v = destination; v != source; v = prev(source, v, metric))
+			length++;
+		int[] path = new int[length];
+		double cost = 0.0;
+		for (int v = destination; v != source; v = prev(source, v, metric)) {
+			path[--length] = v;
+			cost += graph.weight(graph.findArc(prev(source, v, metric), v), metric);
+		}
+		path[0] = source;
+		return new RouteResult(graph, metric, cost, path, 0);
+	}
+
+	/**
+	 * Writes the table to a file that @method map can load
+	 * @param fileName is the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(String fileName) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+		try {
+			file.setLength(0);
+			FileChannel channel = file.getChannel();
+			ByteBuffer all = table.duplicate();
+			all.clear();
+			while (all.hasRemaining())
+				channel.write(all);
+		}
+		finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Memory-maps a table saved by @method save, without reading or recomputing it
+	 * @param graph is the snapshot the table will be used on, must match the one it was computed on
+	 * @param fileName is the file to map
+	 * @return the mapped table
+	 * @throws IOException if the file cannot be mapped or was computed on a different graph
+	 */
+	public static AllPairsTable map(RoadGraph graph, String fileName) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		try {
+			if (file.length() < HEADER_BYTES)
+				throw new IOException("Not an all-pairs file: " + fileName);
+			ByteBuffer table = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+			if (table.getInt(0) != FILE_MAGIC || table.getInt(4) != 1)
+				throw new IOException("Not an all-pairs file: " + fileName);
+			if (table.getInt(8) != graph.numVertices() || table.getInt(12) != graph.numArcs()
+					|| table.getLong(16) != graph.fingerprint()
+					|| table.capacity() != tableBytes(graph.numVertices(), table.getInt(24)))
+				throw new IOException("All-pairs file does not match the graph: " + fileName);
+			return new AllPairsTable(graph, table);
+		}
+		finally {
+			file.close();		//the mapping stays valid after the file is closed
+		}
+	}
+
+	/**
+	 * @return byte offset of the cost from city @param source to city @param destination under @param metric
+	 */
+	private long costOffset(Metric metric, int source, int destination) {
+		long section = (long) n * n * (4 + predWidth);
+		return HEADER_BYTES + metric.ordinal() * section + 4L * ((long) source * n + destination);
+	}
+
+	/**
+	 * @return byte offset of the predecessor of city @param destination from city @param source under @param metric
+	 */
+	private long predOffset(Metric metric, int source, int destination) {
+		long section = (long) n * n * (4 + predWidth);
+		return HEADER_BYTES + metric.ordinal() * section + 4L * n * n
+				+ (long) predWidth * ((long) source * n + destination);
+	}
+
+	/**
+	 * @return total bytes of a table of @param n cities with predecessors of @param predWidth bytes
+	 * @throws IllegalArgumentException if the table would not fit in a single buffer
+	 */
+	private static int tableBytes(int n, int predWidth) throws IllegalArgumentException {
+		long bytes = HEADER_BYTES + (long) Metric.values().length * n * n * (4 + predWidth);
+		if (bytes > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("All-pairs table too large for " + n + " cities");
+		return (int) bytes;
+	}
+}
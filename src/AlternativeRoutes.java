@@ -0,0 +1,440 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import net.datastructures.IndexedDaryHeap;
+import net.datastructures.Vertex;
+
+/**
+ * AlternativeRoutes Class finds a shortest route plus up to two meaningfully different alternatives.
+ * An alternative is only offered if it is
+ *   - not much longer: at most MAX_STRETCH more than the shortest route,
+ *   - different: at most MAX_SHARING of the shortest route's cost is shared with the routes already chosen,
+ *   - locally optimal: where it leaves the chosen routes, every stretch of it up to LOCAL_OPTIMALITY
+ *     of the shortest route's cost is itself a shortest path, so it makes no pointless detours.
+ *
+ * Candidates come from one bidirectional search that keeps going until its frontiers pass the
+ * stretch bound (cities that cannot be on a route within the bound are not expanded, judged by
+ * the other frontier): every city both halves settled is a via city, whose route is the forward tree
+ * path to it joined with the backward tree path from it. If too few via routes pass, a penalty
+ * loop makes the highways of the last route found more expensive and searches again.
+ * No k-shortest enumeration is needed, so a query costs little more than one bidirectional search.
+ *
+ * The search arrays are reused between queries and only the cities and highways a query touches
+ * are reset (see SearchWorkspace), so an instance must not be shared between threads.
+ */
+
+public class AlternativeRoutes {
+	private static final int MAX_ALTERNATIVES = 2;			//alternatives returned besides the shortest route
+	private static final double MAX_STRETCH = 0.25;			//extra cost allowed, as a fraction of the shortest
+	private static final double MAX_SHARING = 0.8;			//cost shared with chosen routes allowed, same fraction
+	private static final double LOCAL_OPTIMALITY = 0.25;	//length of the local optimality test, same fraction
+	private static final double PENALTY = 0.4;				//fraction added to a highway's weight each time it is penalized
+	private static final int PENALTY_ROUNDS = 3;			//searches the penalty loop may run
+
+	private final RoadGraph graph;								//snapshot being searched
+	private final Dijkstra check;								//shortest path searches of the local optimality test
+	private final IndexedDaryHeap forwardQueue, backwardQueue;	//frontiers of the two searches
+	private final IndexedDaryHeap viaQueue;						//via cities by the cost of their route
+	private final SearchWorkspace forward, backward;			//path length from source / to destination, previous city towards
+																//source / next city towards destination
+	private final int[] meetings;								//cities settled by both searches, the candidate via cities
+	private int numMeetings = 0;
+	private final boolean[] chosenArc;							//true for the arcs of the routes chosen so far
+	private final int[] penalties;								//times each arc has been penalized in the current query
+	private final boolean[] onRoute;							//marks the cities of a route being tested for loops
+	private final boolean[] covered;							//via cities whose route has already been tried
+
+	/**
+	 * Constructor for the AlternativeRoutes class
+	 * @param graph is the snapshot to answer queries on
+	 */
+	public AlternativeRoutes(RoadGraph graph) {
+		this.graph = graph;
+		int n = graph.numVertices();
+		check = new Dijkstra(graph);
+		forwardQueue = new IndexedDaryHeap(n);
+		backwardQueue = new IndexedDaryHeap(n);
+		viaQueue = new IndexedDaryHeap(n);
+		forward = new SearchWorkspace(n);
+		backward = new SearchWorkspace(n);
+		meetings = new int[n];
+		chosenArc = new boolean[graph.numArcs()];
+		penalties = new int[graph.numArcs()];
+		onRoute = new boolean[n];
+		covered = new boolean[n];
+	}
+
+	/**
+	 * Finds the shortest route between two City vertices and its alternatives
+	 * @param source is the City the routes start at
+	 * @param destination is the City the routes end at
+	 * @param metric is the weight to minimize
+	 * @return the shortest route followed by up to two alternatives in order of increasing cost,
+	 * 		empty if destination is unreachable
+	 */
+	public List<RouteResult> routes(Vertex<City> source, Vertex<City> destination, Metric metric) {
+		return routes(graph.id(source), graph.id(destination), metric);
+	}
+
+	/**
+	 * Finds the shortest route between two city ids and its alternatives
+	 * @param source is the id of the City the routes start at
+	 * @param destination is the id of the City the routes end at
+	 * @param metric is the weight to minimize
+	 * @return the shortest route followed by up to two alternatives in order of increasing cost,
+	 * 		empty if destination is unreachable
+	 */
+	public List<RouteResult> routes(int source, int destination, Metric metric) {
+		List<RouteResult> routes = new ArrayList<RouteResult>();
+		int settled = search(source, destination, metric);
+		if (viaQueue.isEmpty())
+			return routes;
+		double best = viaQueue.minKey();		//the cheapest via city lies on the shortest route
+		// its two halves may cross where zero weight highways tie, cutting out the loop leaves a route as short
+		int[] shortest = withoutLoops(joinedPath(viaQueue.removeMin()));
+		routes.add(new RouteResult(graph, metric, best, shortest, settled));
+		if (source == destination)
+			return routes;
+		choose(shortest, true);
+		cover(shortest);
+
+		// via cities, cheapest route first
+		while (!viaQueue.isEmpty() && routes.size() <= MAX_ALTERNATIVES) {
+			double cost = viaQueue.minKey();
+			int via = viaQueue.removeMin();
+			if (covered[via])		//same route as a via city already tried
+				continue;
+			int[] path = viaPath(source, destination, via);
+			if (path == null)
+				continue;
+			cover(path);
+			int at = 0;		//position of the via city on its route
+			while (path[at] != via)
+				at++;
+			if (admissible(path, cost, best, metric, at)) {
+				add(routes, new RouteResult(graph, metric, cost, path, settled));
+				choose(path, true);
+			}
+		}
+
+		// penalty loop: make the last route found more expensive and search again
+		List<int[]> penalized = new ArrayList<int[]>();		//routes penalized, to take the penalties off afterwards
+		int[] last = routes.get(routes.size() - 1).getPath();
+		for (int round = 0; round < PENALTY_ROUNDS && routes.size() <= MAX_ALTERNATIVES; round++) {
+			penalize(last, 1);
+			penalized.add(last);
+			last = penalizedPath(source, destination, metric);
+			double cost = cost(last, 0, last.length - 1, metric);
+			if (admissible(last, cost, best, metric, -1)) {
+				add(routes, new RouteResult(graph, metric, cost, last, settled));
+				choose(last, true);
+			}
+		}
+
+		// leave the arc marks clear for the next query, every chosen route was returned
+		for (int[] path : penalized)
+			penalize(path, 0);
+		for (RouteResult route : routes)
+			choose(route.getPath(), false);
+		return routes;
+	}
+
+	/**
+	 * Inserts an alternative after the shortest route, keeping the alternatives in order of increasing cost
+	 */
+	private static void add(List<RouteResult> routes, RouteResult alternative) {
+		int i = routes.size();
+		while (i > 1 && routes.get(i - 1).getCost() > alternative.getCost())
+			i--;
+		routes.add(i, alternative);
+	}
+
+	/**
+	 * Runs a bidirectional Dijkstra search that continues until both frontiers are beyond the
+	 * stretch bound, then queues every city settled from both ends by the cost of its via route
+	 * @return number of cities settled by the two searches
+	 */
+	private int search(int source, int destination, Metric metric) {
+		double[] weights = graph.weights(metric);
+		double[] inWeights = graph.inWeights(metric);
+		for (int i = 0; i < numMeetings; i++)		//only via cities are ever covered, see cover
+			covered[meetings[i]] = false;
+		numMeetings = 0;
+		forward.reset();
+		backward.reset();
+		forwardQueue.clear();
+		backwardQueue.clear();
+		viaQueue.clear();
+
+		forward.set(source, 0.0, -1);
+		backward.set(destination, 0.0, -1);
+		forwardQueue.insert(source, 0.0);
+		backwardQueue.insert(destination, 0.0);
+		double best = (source == destination) ? 0.0 : Double.POSITIVE_INFINITY;	//shortest route seen so far
+		int settled = 0;
+
+		while (true) {
+			// a side is finished once its closest unsettled city is beyond the stretch bound
+			double bound = (1.0 + MAX_STRETCH) * best;
+			boolean forwardOpen = !forwardQueue.isEmpty() && forwardQueue.minKey() <= bound;
+			boolean backwardOpen = !backwardQueue.isEmpty() && backwardQueue.minKey() <= bound;
+			if (!forwardOpen && !backwardOpen)
+				break;
+			settled++;
+			if (forwardOpen && (!backwardOpen || forwardQueue.minKey() <= backwardQueue.minKey())) {
+				int u = forwardQueue.removeMin();
+				double pathWeight = forward.cost(u);
+				// u is still ahead of the backward frontier, so its via route is at least this long
+				if (!backward.isSettled(u) && pathWeight + backwardQueue.minKey() > bound)
+					continue;
+				forward.settle(u);
+				if (backward.isSettled(u))
+					meetings[numMeetings++] = u;
+				for (int arc = graph.firstArc(u); arc < graph.endArc(u); arc++) {
+					int v = graph.head(arc);
+					double weight = pathWeight + weights[arc];
+					if (weight < forward.cost(v)) {
+						forward.set(v, weight, u);
+						forwardQueue.insertOrDecrease(v, weight);
+						best = Math.min(best, weight + backward.cost(v));
+					}
+				}
+			}
+			else {
+				int u = backwardQueue.removeMin();
+				double pathWeight = backward.cost(u);
+				if (!forward.isSettled(u) && pathWeight + forwardQueue.minKey() > bound)
+					continue;
+				backward.settle(u);
+				if (forward.isSettled(u))
+					meetings[numMeetings++] = u;
+				for (int arc = graph.firstInArc(u); arc < graph.endInArc(u); arc++) {
+					int v = graph.tail(arc);
+					double weight = pathWeight + inWeights[arc];
+					if (weight < backward.cost(v)) {
+						backward.set(v, weight, u);
+						backwardQueue.insertOrDecrease(v, weight);
+						best = Math.min(best, forward.cost(v) + weight);
+					}
+				}
+			}
+		}
+
+		// both halves of a via route are exact only where both searches settled the via city
+		double bound = (1.0 + MAX_STRETCH) * best;
+		Arrays.sort(meetings, 0, numMeetings);		//queue in id order, equally cheap via cities are then tried in the same order every time
+		for (int i = 0; i < numMeetings; i++) {
+			int v = meetings[i];
+			if (forward.cost(v) + backward.cost(v) <= bound)
+				viaQueue.insert(v, forward.cost(v) + backward.cost(v));
+		}
+		return settled;
+	}
+
+	/**
+	 * Joins the forward tree path to a via city with the backward tree path from it
+	 * @return city ids from source to destination, or null if the two halves cross (the route has a loop)
+	 */
+	private int[] viaPath(int source, int destination, int via) {
+		int[] path = joinedPath(via);
+		return loopless(path) ? path : null;
+	}
+
+	/**
+	 * Joins the forward tree path to a via city with the backward tree path from it
+	 * @return city ids from source to destination, possibly with a loop where the two halves cross
+	 */
+	private int[] joinedPath(int via) {
+		int[] sourceSide = forward.path(via);
+		int length = sourceSide.length;
+		for (int v = backward.prev(via); v >= 0; v = backward.prev(v))
+			length++;
+		int[] path = Arrays.copyOf(sourceSide, length);
+		for (int v = backward.prev(via), i = sourceSide.length; v >= 0; v = backward.prev(v), i++)
+			path[i] = v;
+		return path;
+	}
+
+	/**
+	 * Cuts every loop out of a route: when a city comes up again, the cities since its first visit are dropped
+	 * @return city ids of @param path with each city at most once
+	 */
+	private int[] withoutLoops(int[] path) {
+		int[] kept = new int[path.length];
+		int length = 0;
+		for (int v : path) {
+			if (onRoute[v])		//back at v, drop the loop that left it
+				while (kept[length - 1] != v)
+					onRoute[kept[--length]] = false;
+			else {
+				onRoute[v] = true;
+				kept[length++] = v;
+			}
+		}
+		for (int i = 0; i < length; i++)
+			onRoute[kept[i]] = false;
+		return Arrays.copyOf(kept, length);
+	}
+
+	/**
+	 * Marks every via city of a via route whose own via route is the same: the cities where the route
+	 * is still the forward tree path from the source and already the backward tree path to the destination
+	 * (only via cities are marked, so the marks can be cleared through meetings)
+	 */
+	private void cover(int[] path) {
+		int tree = 1;		//path[0] to path[tree - 1] follow the forward tree
+		while (tree < path.length && forward.prev(path[tree]) == path[tree - 1])
+			tree++;
+		for (int j = path.length - 1; j >= 0; j--) {
+			if (j < tree && forward.isSettled(path[j]) && backward.isSettled(path[j]))
+				covered[path[j]] = true;
+			if (j > 0 && backward.prev(path[j - 1]) != path[j])		//backward tree path starts at j
+				break;
+		}
+	}
+
+	/**
+	 * @return true if no city appears twice on @param path
+	 */
+	private boolean loopless(int[] path) {
+		boolean loopless = true;
+		int i = 0;
+		for (; i < path.length && loopless; i++) {
+			loopless = !onRoute[path[i]];
+			onRoute[path[i]] = true;
+		}
+		for (int j = 0; j < i; j++)
+			onRoute[path[j]] = false;
+		return loopless;
+	}
+
+	/**
+	 * Checks the three conditions on a candidate alternative
+	 * @param path is the candidate's city ids from source to destination
+	 * @param cost is the candidate's cost
+	 * @param best is the cost of the shortest route
+	 * @param via is the position of the candidate's via city, -1 if it did not come from the via search
+	 * @return true if the candidate has bounded stretch, limited sharing and is locally optimal
+	 */
+	private boolean admissible(int[] path, double cost, double best, Metric metric, int via) {
+		if (path == null || path.length < 2 || cost > (1.0 + MAX_STRETCH) * best)
+			return false;
+		double shared = 0.0;
+		for (int i = 1; i < path.length; i++) {
+			int arc = graph.findArc(path[i - 1], path[i]);
+			if (chosenArc[arc])
+				shared += graph.weight(arc, metric);
+		}
+		if (shared > MAX_SHARING * best)
+			return false;
+		if (via >= 0)		//both halves are shortest paths, only a detour across the via city is possible
+			return windowOptimal(path, via, LOCAL_OPTIMALITY * best, metric);
+		return locallyOptimal(path, best, metric);
+	}
+
+	/**
+	 * T-test for local optimality: along every section of the path not shared with the chosen routes,
+	 * at test points spaced half a window apart, the part of the path reaching LOCAL_OPTIMALITY * best
+	 * back and ahead of the test point must be a shortest path
+	 */
+	private boolean locallyOptimal(int[] path, double best, Metric metric) {
+		double window = LOCAL_OPTIMALITY * best;
+		double sinceTest = Double.POSITIVE_INFINITY;		//cost of the unshared path since the last test point
+		for (int i = 1; i < path.length; i++) {
+			int arc = graph.findArc(path[i - 1], path[i]);
+			if (chosenArc[arc]) {		//shared sections are shortest paths already
+				sinceTest = Double.POSITIVE_INFINITY;
+				continue;
+			}
+			if (sinceTest >= window / 2) {
+				if (!windowOptimal(path, i - 1, window, metric))
+					return false;
+				sinceTest = 0.0;
+			}
+			sinceTest += graph.weight(arc, metric);
+		}
+		return true;
+	}
+
+	/**
+	 * Checks that the part of the path reaching @param window back and ahead of position @param at is a shortest path
+	 * @return false if the path makes a detour there
+	 */
+	private boolean windowOptimal(int[] path, int at, double window, Metric metric) {
+		int from = at, to = at;
+		double back = 0.0, ahead = 0.0;
+		while (from > 0 && back < window) {
+			back += graph.weight(graph.findArc(path[from - 1], path[from]), metric);
+			from--;
+		}
+		while (to < path.length - 1 && ahead < window) {
+			ahead += graph.weight(graph.findArc(path[to], path[to + 1]), metric);
+			to++;
+		}
+		return check.route(path[from], path[to], metric).getCost() >= (back + ahead) * (1.0 - 1e-9);
+	}
+
+	/**
+	 * Marks the arcs of a route as chosen (or clears them for @param chosen false), in both directions if the graph is undirected
+	 */
+	private void choose(int[] path, boolean chosen) {
+		for (int i = 1; i < path.length; i++) {
+			chosenArc[graph.findArc(path[i - 1], path[i])] = chosen;
+			if (!graph.isDirected())
+				chosenArc[graph.findArc(path[i], path[i - 1])] = chosen;
+		}
+	}
+
+	/**
+	 * Penalizes every arc of @param path once more (both directions if undirected), or takes all its
+	 * penalties off for @param times 0
+	 */
+	private void penalize(int[] path, int times) {
+		for (int i = 1; i < path.length; i++) {
+			int arc = graph.findArc(path[i - 1], path[i]);
+			penalties[arc] = (times == 0) ? 0 : penalties[arc] + times;
+			if (!graph.isDirected()) {
+				arc = graph.findArc(path[i], path[i - 1]);
+				penalties[arc] = (times == 0) ? 0 : penalties[arc] + times;
+			}
+		}
+	}
+
+	/**
+	 * Runs Dijkstra from source to destination with each arc weighing PENALTY times its original
+	 * weight more for every time it has been penalized, reusing the forward workspace
+	 * @return city ids of the cheapest penalized route (the destination is reachable, the via search found it)
+	 */
+	private int[] penalizedPath(int source, int destination, Metric metric) {
+		double[] weights = graph.weights(metric);
+		forward.reset();
+		forwardQueue.clear();
+		forward.set(source, 0.0, -1);
+		forwardQueue.insert(source, 0.0);
+		while (!forwardQueue.isEmpty()) {
+			int u = forwardQueue.removeMin();
+			if (u == destination)
+				break;
+			double pathWeight = forward.cost(u);
+			for (int arc = graph.firstArc(u); arc < graph.endArc(u); arc++) {
+				int v = graph.head(arc);
+				double weight = pathWeight + weights[arc] * (1.0 + PENALTY * penalties[arc]);
+				if (weight < forward.cost(v)) {
+					forward.set(v, weight, u);
+					forwardQueue.insertOrDecrease(v, weight);
+				}
+			}
+		}
+		return forward.path(destination);
+	}
+
+	/**
+	 * @return cost under @param metric of @param path from position @param from to position @param to
+	 */
+	private double cost(int[] path, int from, int to, Metric metric) {
+		double cost = 0.0;
+		for (int i = from + 1; i <= to; i++)
+			cost += graph.weight(graph.findArc(path[i - 1], path[i]), metric);
+		return cost;
+	}
+}
@@ -0,0 +1,163 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.datastructures.Vertex;
+
+/**
+ * BatchRouter Class answers large batches of route queries without the GUI:
+ * Queries are grouped by source city and metric so each group needs a single Dijkstra search,
+ * which stops as soon as the group's last destination is settled. The groups are shared out
+ * to a pool of threads; each thread takes the next unsearched group until none are left and
+ * keeps its own Dijkstra arrays, so threads never share mutable search state.
+ *
+ * Every batch runs on the RoadMap's snapshot taken when routes is called, so later changes to
+ * the RoadMap do not affect a running batch; routes must not be called while another thread is
+ * changing the RoadMap.
+ */
+
+public class BatchRouter {
+	private final RoadMap roadmap;			//map the queries name cities of
+	private final ExecutorService pool;		//threads the groups are searched on
+	private final int threads;				//number of groups searched at the same time
+	private final boolean ownsPool;			//true if shutdown should stop the pool
+
+	/**
+	 * Constructor for the BatchRouter class, with a pool of its own
+	 * Call @method shutdown when done, the pool's threads are not daemon threads
+	 * @param roadmap is the map to route on
+	 * @param threads is the number of threads to search on
+	 * @throws IllegalArgumentException if threads is less than 1
+	 */
+	public BatchRouter(RoadMap roadmap, int threads) throws IllegalArgumentException {
+		this(roadmap, Executors.newFixedThreadPool(checkThreads(threads)), threads, true);
+	}
+
+	/**
+	 * Constructor for the BatchRouter class, on a pool owned by the caller
+	 * @param roadmap is the map to route on
+	 * @param pool is the executor the searches run on, not shut down by this router
+	 * @param threads is the number of searches to run at the same time on the pool
+	 * @throws IllegalArgumentException if threads is less than 1
+	 */
+	public BatchRouter(RoadMap roadmap, ExecutorService pool, int threads) throws IllegalArgumentException {
+		this(roadmap, pool, checkThreads(threads), false);
+	}
+
+	private BatchRouter(RoadMap roadmap, ExecutorService pool, int threads, boolean ownsPool) {
+		this.roadmap = roadmap;
+		this.pool = pool;
+		this.threads = threads;
+		this.ownsPool = ownsPool;
+	}
+
+	/**
+	 * Answers a batch of queries
+	 * @param queries are the routes to find
+	 * @return the shortest route for each query in the order given, not found if its destination is unreachable
+	 * @throws IllegalArgumentException if a query names a city that is not on the map
+	 * @throws InterruptedException if the calling thread is interrupted while waiting for the searches
+	 */
+	public List<RouteResult> routes(List<RouteQuery> queries) throws IllegalArgumentException, InterruptedException {
+		final RoadGraph graph = roadmap.snapshot();
+		int q = queries.size();
+		final int[] sources = new int[q], destinations = new int[q];
+		final Metric[] metrics = new Metric[q];
+		long[] keys = new long[q];		//group key in the high bits, query index in the low bits
+		for (int i = 0; i < q; i++) {
+			RouteQuery query = queries.get(i);
+			sources[i] = cityId(graph, query.getSource());
+			destinations[i] = cityId(graph, query.getDestination());
+			metrics[i] = query.getMetric();
+			keys[i] = ((long) sources[i] * Metric.values().length + metrics[i].ordinal()) << 32 | i;
+		}
+		Arrays.sort(keys);		//queries of the same group are now next to each other
+
+		// groupStart[g] to groupStart[g + 1] - 1 are the positions in keys of group g
+		int numGroups = 0;
+		int[] groupStart = new int[q + 1];
+		for (int i = 0; i < q; i++)
+			if (i == 0 || (keys[i] >>> 32) != (keys[i - 1] >>> 32))
+				groupStart[numGroups++] = i;
+		groupStart[numGroups] = q;
+
+		final RouteResult[] results = new RouteResult[q];
+		final int[] starts = groupStart;
+		final long[] order = keys;
+		final int groups = numGroups;
+		final AtomicInteger next = new AtomicInteger();		//next group to search
+		List<Future<Void>> workers = new ArrayList<Future<Void>>();
+		for (int t = 0; t < Math.min(threads, numGroups); t++)
+			workers.add(pool.submit(new Callable<Void>() {
+				public Void call() {
+					Dijkstra search = new Dijkstra(graph);		//this worker's own search arrays
+					for (int g = next.getAndIncrement(); g < groups; g = next.getAndIncrement()) {
+						int first = (int) order[starts[g]];
+						int[] targets = new int[starts[g + 1] - starts[g]];
+						for (int i = starts[g]; i < starts[g + 1]; i++)
+							targets[i - starts[g]] = destinations[(int) order[i]];
+						ShortestPathTree tree = search.search(sources[first], metrics[first], targets,
+								Double.POSITIVE_INFINITY, Integer.MAX_VALUE);
+						for (int i = starts[g]; i < starts[g + 1]; i++)
+							results[(int) order[i]] = tree.route(destinations[(int) order[i]]);
+					}
+					return null;
+				}
+			}));
+
+		try {
+			for (Future<Void> worker : workers)
+				worker.get();		//also makes the workers' writes to results visible here
+		}
+		catch (ExecutionException e) {		//a search failed, pass its exception on
+			for (Future<Void> worker : workers)
+				worker.cancel(true);
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			if (e.getCause() instanceof Error)
+				throw (Error) e.getCause();
+			throw new IllegalStateException(e.getCause());
+		}
+		catch (InterruptedException e) {
+			for (Future<Void> worker : workers)
+				worker.cancel(true);
+			throw e;
+		}
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Stops the pool if this router created it, queued batches are finished first
+	 */
+	public void shutdown() {
+		if (ownsPool)
+			pool.shutdown();
+	}
+
+	/**
+	 * @return id of the City named @param name in @param graph
+	 * @throws IllegalArgumentException if there is no such City
+	 */
+	private int cityId(RoadGraph graph, String name) throws IllegalArgumentException {
+		Vertex<City> city = roadmap.getCity(name);
+		int id = (city == null) ? -1 : graph.id(city);
+		if (id < 0)
+			throw new IllegalArgumentException("No city named " + name + " on the map");
+		return id;
+	}
+
+	/**
+	 * @return @param threads if it is a valid thread count
+	 * @throws IllegalArgumentException if threads is less than 1
+	 */
+	private static int checkThreads(int threads) throws IllegalArgumentException {
+		if (threads < 1)
+			throw new IllegalArgumentException("Need at least one thread: " + threads);
+		return threads;
+	}
+}
@@ -0,0 +1,130 @@
+import java.util.Arrays;
+import net.datastructures.IndexedDaryHeap;
+import net.datastructures.Vertex;
+
+/**
+ * BidirectionalDijkstra Class answers single source-to-destination queries on a RoadGraph:
+ * A forward Dijkstra search from the source and a backward search (over incoming arcs) from the
+ * destination take turns, and the query stops as soon as the two frontiers have met and no
+ * shorter route through the unsettled part of the graph is possible.
+ *
+ * Typically settles far fewer cities than a one-to-all search from the source.
+ * The search arrays are reused between queries and only the cities a query reaches are reset
+ * (see SearchWorkspace), so an instance must not be shared between threads.
+ */
+
+public class BidirectionalDijkstra {
+	private final RoadGraph graph;							//snapshot being searched
+	private final IndexedDaryHeap forwardQueue, backwardQueue;	//frontiers of the two searches
+	private final SearchWorkspace forward, backward;		//path length from source / to destination, previous city towards it
+
+	/**
+	 * Constructor for the BidirectionalDijkstra class
+	 * @param graph is the snapshot to answer queries on
+	 */
+	public BidirectionalDijkstra(RoadGraph graph) {
+		this.graph = graph;
+		int n = graph.numVertices();
+		forwardQueue = new IndexedDaryHeap(n);
+		backwardQueue = new IndexedDaryHeap(n);
+		forward = new SearchWorkspace(n);
+		backward = new SearchWorkspace(n);
+	}
+
+	/**
+	 * Finds a shortest route between two City vertices
+	 * @param source is the City the route starts at
+	 * @param destination is the City the route ends at
+	 * @param metric is the weight to minimize
+	 * @return the shortest route, not found if destination is unreachable
+	 */
+	public RouteResult route(Vertex<City> source, Vertex<City> destination, Metric metric) {
+		return route(graph.id(source), graph.id(destination), metric);
+	}
+
+	/**
+	 * Finds a shortest route between two cities given by their ids in the snapshot
+	 * @param source is the id of the City the route starts at
+	 * @param destination is the id of the City the route ends at
+	 * @param metric is the weight to minimize
+	 * @return the shortest route, not found if destination is unreachable
+	 */
+	public RouteResult route(int source, int destination, Metric metric) {
+		double[] weights = graph.weights(metric);			//arc weights looked up once per query
+		double[] inWeights = graph.inWeights(metric);
+		forward.reset();
+		backward.reset();
+		forwardQueue.clear();
+		backwardQueue.clear();
+
+		forward.set(source, 0.0, -1);
+		backward.set(destination, 0.0, -1);
+		forwardQueue.insert(source, 0.0);
+		backwardQueue.insert(destination, 0.0);
+
+		double best = (source == destination) ? 0.0 : Double.POSITIVE_INFINITY;	//shortest route seen so far
+		int meeting = (source == destination) ? source : -1;						//city where that route crosses over
+		int settled = 0;
+
+		// stop once no route through an unsettled city can beat the best one found
+		while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty()
+				&& forwardQueue.minKey() + backwardQueue.minKey() < best) {
+			settled++;
+			if (forwardQueue.minKey() <= backwardQueue.minKey()) {		//advance the forward search
+				int u = forwardQueue.removeMin();
+				double pathWeight = forward.cost(u);
+				for (int arc = graph.firstArc(u); arc < graph.endArc(u); arc++) {
+					int v = graph.head(arc);
+					double weight = pathWeight + weights[arc];
+					if (weight < forward.cost(v)) {
+						forward.set(v, weight, u);
+						forwardQueue.insertOrDecrease(v, weight);
+						if (weight + backward.cost(v) < best) {	//v has been reached from both ends
+							best = weight + backward.cost(v);
+							meeting = v;
+						}
+					}
+				}
+			}
+			else {														//advance the backward search
+				int u = backwardQueue.removeMin();
+				double pathWeight = backward.cost(u);
+				for (int arc = graph.firstInArc(u); arc < graph.endInArc(u); arc++) {
+					int v = graph.tail(arc);
+					double weight = pathWeight + inWeights[arc];
+					if (weight < backward.cost(v)) {
+						backward.set(v, weight, u);
+						backwardQueue.insertOrDecrease(v, weight);
+						if (weight + forward.cost(v) < best) {	//v has been reached from both ends
+							best = weight + forward.cost(v);
+							meeting = v;
+						}
+					}
+				}
+			}
+		}
+
+		if (meeting < 0)
+			return RouteResult.unreachable(graph, metric, settled);
+		return new RouteResult(graph, metric, best, joinPath(meeting), settled);
+	}
+
+	/**
+	 * Joins the forward path from the source to the meeting city with the backward path
+	 * from the meeting city to the destination
+	 * @param meeting is the id of the city where the two searches met
+	 * @return city ids from source to destination
+	 */
+	private int[] joinPath(int meeting) {
+		int[] sourceSide = forward.path(meeting);
+		int destinationSide = 0;
+		for (int v = backward.prev(meeting); v >= 0; v = backward.prev(v))
+			destinationSide++;
+
+		int[] path = Arrays.copyOf(sourceSide, sourceSide.length + destinationSide);
+		int i = sourceSide.length;
+		for (int v = backward.prev(meeting); v >= 0; v = backward.prev(v))
+			path[i++] = v;
+		return path;
+	}
+}
@@ -0,0 +1,230 @@
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import net.datastructures.AdjacencyMapGraph;
+import net.datastructures.Vertex;
+
+/**
+ * CityIndex Class is a static 2-d tree over the City locations of a graph, answering
+ * "which city is closest to this point" in O(log n) expected time instead of a scan of every city.
+ *
+ * The tree is implicit in three parallel arrays: the cities of index range lo to hi - 1 are split
+ * at their median mid = (lo + hi) / 2 along x at even depths and along y at odd depths, with the
+ * cities before mid on the smaller side and the cities after it on the larger side.
+ * Cities added to or removed from the graph later are not seen, the owner builds a new index then.
+ */
+
+public class CityIndex {
+	private final Vertex<City>[] cities;	//cities in tree order
+	private final int[] x, y;				//location of each city in tree order
+
+	/**
+	 * Constructor for the CityIndex class
+	 * @param graph is the graph whose City vertices are indexed, such as a RoadMap
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public CityIndex(AdjacencyMapGraph<City, Highway> graph) {
+		int n = graph.numVertices();
+		cities = (Vertex<City>[]) new Vertex[n];
+		x = new int[n];
+		y = new int[n];
+		int i = 0;
+		for (Vertex<City> v : graph.vertices()) {
+			cities[i] = v;
+			x[i] = v.getElement().getLocation().x;
+			y[i] = v.getElement().getLocation().y;
+			i++;
+		}
+		build(0, n, true);
+	}
+
+	/**
+	 * @return number of cities indexed
+	 */
+	public int size() {
+		return cities.length;
+	}
+
+	/**
+	 * Finds the city closest to a point
+	 * @param p is the point to search from
+	 * @return the closest City vertex, or null if the index is empty
+	 */
+	public Vertex<City> nearest(Point p) {
+		List<Vertex<City>> closest = nearest(p, 1);
+		return closest.isEmpty() ? null : closest.get(0);
+	}
+
+	/**
+	 * Finds the k cities closest to a point
+	 * @param p is the point to search from, anywhere on or off the map
+	 * @param k is the number of cities wanted
+	 * @return up to k City vertices in order of increasing distance from p
+	 */
+	public List<Vertex<City>> nearest(Point p, int k) {
+		k = Math.min(k, cities.length);
+		List<Vertex<City>> closest = new ArrayList<Vertex<City>>(Math.max(k, 0));
+		if (k <= 0)
+			return closest;
+
+		Candidates found = new Candidates(k);
+		search(0, cities.length, true, p.x, p.y, found);
+		for (int i = found.size - 1; i > 0; i--)		//heap sort the candidates, farthest to the back
+			found.removeMax(i);
+		for (int i = 0; i < found.size; i++)
+			closest.add(cities[found.city[i]]);
+		return closest;
+	}
+
+	/**
+	 * Visits the subtree of index range lo to hi - 1, nearer side first, skipping the farther side
+	 * when the splitting line is already beyond the k-th closest city found
+	 */
+	private void search(int lo, int hi, boolean byX, int px, int py, Candidates found) {
+		if (lo >= hi)
+			return;
+		int mid = (lo + hi) >>> 1;
+		long dx = px - x[mid], dy = py - y[mid];
+		found.offer(mid, dx * dx + dy * dy);
+
+		long split = byX ? dx : dy;		//signed distance from the splitting line
+		if (split < 0) {
+			search(lo, mid, !byX, px, py, found);
+			if (!found.isFull() || split * split < found.farthest())
+				search(mid + 1, hi, !byX, px, py, found);
+		}
+		else {
+			search(mid + 1, hi, !byX, px, py, found);
+			if (!found.isFull() || split * split < found.farthest())
+				search(lo, mid, !byX, px, py, found);
+		}
+	}
+
+	/**
+	 * Arranges the cities of index range lo to hi - 1 into tree order
+	 * @param byX is true to split this range along x, false along y
+	 */
+	private void build(int lo, int hi, boolean byX) {
+		if (hi - lo <= 1)
+			return;
+		int mid = (lo + hi) >>> 1;
+		select(lo, hi - 1, mid, byX);
+		build(lo, mid, !byX);
+		build(mid + 1, hi, !byX);
+	}
+
+	/**
+	 * Quickselect: moves the city of rank @param k within index range lo to hi (inclusive) to
+	 * index k, with no larger coordinate before it and no smaller one after it
+	 */
+	private void select(int lo, int hi, int k, boolean byX) {
+		int[] key = byX ? x : y;
+		while (lo < hi) {
+			int pivot = key[(lo + hi) >>> 1];
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (key[i] < pivot)
+					i++;
+				while (key[j] > pivot)
+					j--;
+				if (i <= j)
+					swap(i++, j--);
+			}
+			if (k <= j)
+				hi = j;
+			else if (k >= i)
+				lo = i;
+			else
+				return;			//k is among the cities equal to the pivot
+		}
+	}
+
+	/**
+	 * Exchanges the cities at tree positions @param i and @param j
+	 */
+	private void swap(int i, int j) {
+		Vertex<City> city = cities[i];
+		cities[i] = cities[j];
+		cities[j] = city;
+		int t = x[i];
+		x[i] = x[j];
+		x[j] = t;
+		t = y[i];
+		y[i] = y[j];
+		y[j] = t;
+	}
+
+	/**
+	 * The k closest cities found so far, kept as a binary max-heap on squared distance
+	 */
+	private static class Candidates {
+		private final int[] city;			//tree position of each candidate
+		private final long[] distance;		//squared distance of each candidate from the query point
+		private int size = 0;
+
+		private Candidates(int k) {
+			city = new int[k];
+			distance = new long[k];
+		}
+
+		private boolean isFull() {
+			return size == city.length;
+		}
+
+		/**
+		 * @return squared distance of the farthest candidate
+		 */
+		private long farthest() {
+			return distance[0];
+		}
+
+		/**
+		 * Keeps tree position @param c at squared distance @param d if it is among the k closest so far
+		 */
+		private void offer(int c, long d) {
+			if (!isFull()) {
+				int i = size++;			//sift the new candidate up from the bottom
+				while (i > 0 && distance[(i - 1) / 2] < d) {
+					city[i] = city[(i - 1) / 2];
+					distance[i] = distance[(i - 1) / 2];
+					i = (i - 1) / 2;
+				}
+				city[i] = c;
+				distance[i] = d;
+			}
+			else if (d < distance[0])
+				siftDown(c, d, size);	//replace the farthest candidate
+		}
+
+		/**
+		 * Moves the farthest of the first @param n candidates to position n - 1
+		 */
+		private void removeMax(int n) {
+			int c = city[0];
+			long d = distance[0];
+			siftDown(city[n], distance[n], n);
+			city[n] = c;
+			distance[n] = d;
+		}
+
+		/**
+		 * Places candidate @param c at squared distance @param d at the root of the heap of the
+		 * first @param n candidates and sifts it down
+		 */
+		private void siftDown(int c, long d, int n) {
+			int i = 0;
+			while (2 * i + 1 < n) {
+				int child = 2 * i + 1;
+				if (child + 1 < n && distance[child + 1] > distance[child])
+					child++;
+				if (distance[child] <= d)
+					break;
+				city[i] = city[child];
+				distance[i] = distance[child];
+				i = child;
+			}
+			city[i] = c;
+			distance[i] = d;
+		}
+	}
+}
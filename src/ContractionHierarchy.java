@@ -0,0 +1,638 @@
+import java.util.Arrays;
+import java.util.List;
+import net.datastructures.IndexedDaryHeap;
+import net.datastructures.Vertex;
+
+/**
+ * ContractionHierarchy Class preprocesses an undirected RoadGraph for one metric so that
+ * source-to-destination queries only have to search a tiny part of the graph.
+ *
+ * Preprocessing contracts the cities one at a time, least important first (fewest shortcuts
+ * added, fewest neighbors already contracted). Contracting a city removes it from the remaining
+ * graph and, for every pair of its neighbors whose only shortest connection runs through it,
+ * adds a shortcut edge remembering the two edges it replaces. Every edge of the result then
+ * points upward from the lower ranked city to the higher ranked one.
+ *
+ * A query runs Dijkstra upward from both the source and the destination over that search graph
+ * and joins the two at the best meeting city; the shortcuts on the answer are unpacked back into
+ * the original Highway arcs. Many-to-many cost matrices use the same upward searches with
+ * buckets: one search per target leaves its costs at the cities it settles, and one search
+ * per source reads them back, instead of one full Dijkstra per source.
+ * One hierarchy is built per metric; the query arrays are reused between queries, so an
+ * instance must not be shared between threads, but copies made with the sharing constructor
+ * query the same hierarchy from other threads without preprocessing it again.
+ */
+
+public class ContractionHierarchy {
+	private static final int WITNESS_SETTLE_LIMIT = 500;	//cities a witness search may settle before giving up
+
+	private final RoadGraph graph;		//snapshot the hierarchy was built from
+	private final Metric metric;		//weight the hierarchy minimizes
+	private final int[] rank;			//position of each city id in the contraction order
+
+	//edges of the hierarchy, original highways and shortcuts: shortcut e runs edgeU[e] - edgeMid[e] - edgeV[e]
+	//through child edge edgeFirst[e] (touching edgeU[e]) and edgeSecond[e] (touching edgeV[e])
+	private int numEdges = 0, numShortcuts = 0;
+	private int[] edgeU, edgeV, edgeMid, edgeFirst, edgeSecond;
+	private double[] edgeWeight;
+
+	//upward search graph: arcs of city v lead to higher ranked cities and are stored at upOffsets[v] to upOffsets[v+1] - 1
+	private final int[] upOffsets, upHeads, upEdges;
+	private final double[] upWeights;
+
+	//query state, reused by every route query
+	private final IndexedDaryHeap forwardQueue, backwardQueue;
+	private final SearchWorkspace forward, backward;	//cost of each reached city and the hierarchy edge it was reached by
+	private final int[] path;							//buffer the unpacked route is written to
+	private final int[] upSettled;						//cities an upward search settled without being stalled
+
+	//preprocessing state, released once the search graph is built
+	private int[][] adjacent;		//hierarchy edge ids incident to each city
+	private int[] degree;			//number of used entries in each adjacent list
+	private boolean[] contracted;
+	private IndexedDaryHeap witnessQueue;
+	private double[] witnessWeight;
+	private int[] touchedCities;	//cities whose witnessWeight must be reset after a witness search
+	private int touchedCount;
+
+	/**
+	 * Constructor for the ContractionHierarchy class, contracts the whole graph
+	 * @param graph is the undirected snapshot to preprocess
+	 * @param metric is the weight the hierarchy minimizes
+	 * @throws IllegalArgumentException if the graph is directed
+	 */
+	public ContractionHierarchy(RoadGraph graph, Metric metric) throws IllegalArgumentException {
+		if (graph.isDirected())
+			throw new IllegalArgumentException("Contraction hierarchy requires an undirected graph");
+		this.graph = graph;
+		this.metric = metric;
+		int n = graph.numVertices();
+		rank = new int[n];
+
+		readEdges();
+		contractAll();
+
+		//lay out the upward search graph
+		upOffsets = new int[n + 1];
+		for (int e = 0; e < numEdges; e++)
+			upOffsets[lower(e) + 1]++;
+		for (int v = 0; v < n; v++)
+			upOffsets[v + 1] += upOffsets[v];
+		upHeads = new int[numEdges];
+		upEdges = new int[numEdges];
+		upWeights = new double[numEdges];
+		int[] next = Arrays.copyOf(upOffsets, n);
+		for (int e = 0; e < numEdges; e++) {
+			int arc = next[lower(e)]++;
+			upHeads[arc] = (lower(e) == edgeU[e]) ? edgeV[e] : edgeU[e];
+			upEdges[arc] = e;
+			upWeights[arc] = edgeWeight[e];
+		}
+
+		adjacent = null;
+		degree = null;
+		contracted = null;
+		witnessQueue = null;
+		witnessWeight = null;
+		touchedCities = null;
+
+		forwardQueue = new IndexedDaryHeap(n);
+		backwardQueue = new IndexedDaryHeap(n);
+		forward = new SearchWorkspace(n);
+		backward = new SearchWorkspace(n);
+		path = new int[n];
+		upSettled = new int[n];
+	}
+
+	/**
+	 * Constructor for a ContractionHierarchy that shares the preprocessed hierarchy of another one
+	 * and has query arrays of its own, so that another thread can query the same hierarchy
+	 * @param hierarchy is the hierarchy to share, it is not modified by either instance's queries
+	 */
+	public ContractionHierarchy(ContractionHierarchy hierarchy) {
+		graph = hierarchy.graph;
+		metric = hierarchy.metric;
+		rank = hierarchy.rank;
+		numEdges = hierarchy.numEdges;
+		numShortcuts = hierarchy.numShortcuts;
+		edgeU = hierarchy.edgeU;
+		edgeV = hierarchy.edgeV;
+		edgeMid = hierarchy.edgeMid;
+		edgeFirst = hierarchy.edgeFirst;
+		edgeSecond = hierarchy.edgeSecond;
+		edgeWeight = hierarchy.edgeWeight;
+		upOffsets = hierarchy.upOffsets;
+		upHeads = hierarchy.upHeads;
+		upEdges = hierarchy.upEdges;
+		upWeights = hierarchy.upWeights;
+
+		int n = graph.numVertices();
+		forwardQueue = new IndexedDaryHeap(n);
+		backwardQueue = new IndexedDaryHeap(n);
+		forward = new SearchWorkspace(n);
+		backward = new SearchWorkspace(n);
+		path = new int[n];
+		upSettled = new int[n];
+	}
+
+	/**
+	 * @return metric the hierarchy minimizes
+	 */
+	public Metric getMetric() {
+		return metric;
+	}
+
+	/**
+	 * @return snapshot the hierarchy was built from
+	 */
+	public RoadGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return number of shortcut edges added during preprocessing
+	 */
+	public int getShortcuts() {
+		return numShortcuts;
+	}
+
+	/**
+	 * @return position of city id @param v in the contraction order (higher is more important)
+	 */
+	public int rank(int v) {
+		return rank[v];
+	}
+
+	/**
+	 * Finds a shortest route between two City vertices
+	 * @param source is the City the route starts at
+	 * @param destination is the City the route ends at
+	 * @return the shortest route with shortcuts unpacked, not found if destination is unreachable
+	 */
+	public RouteResult route(Vertex<City> source, Vertex<City> destination) {
+		return route(graph.id(source), graph.id(destination));
+	}
+
+	/**
+	 * Finds a shortest route between two city ids by searching upward from both ends
+	 * @param source is the id of the City the route starts at
+	 * @param destination is the id of the City the route ends at
+	 * @return the shortest route with shortcuts unpacked, not found if destination is unreachable
+	 */
+	public RouteResult route(int source, int destination) {
+		forward.reset();
+		backward.reset();
+		forwardQueue.clear();
+		backwardQueue.clear();
+
+		forward.set(source, 0.0, -1);
+		backward.set(destination, 0.0, -1);
+		forwardQueue.insert(source, 0.0);
+		backwardQueue.insert(destination, 0.0);
+
+		double best = (source == destination) ? 0.0 : Double.POSITIVE_INFINITY;	//shortest route seen so far
+		int meeting = (source == destination) ? source : -1;						//city where that route peaks
+		int settled = 0;
+
+		while (true) {
+			// a side is finished once its closest unsettled city is no closer than the best route
+			boolean forwardOpen = !forwardQueue.isEmpty() && forwardQueue.minKey() < best;
+			boolean backwardOpen = !backwardQueue.isEmpty() && backwardQueue.minKey() < best;
+			if (!forwardOpen && !backwardOpen)
+				break;
+			settled++;
+			if (forwardOpen && (!backwardOpen || forwardQueue.minKey() <= backwardQueue.minKey())) {
+				int u = forwardQueue.removeMin();
+				double pathWeight = forward.cost(u);
+				for (int arc = upOffsets[u]; arc < upOffsets[u + 1]; arc++) {
+					int v = upHeads[arc];
+					double weight = pathWeight + upWeights[arc];
+					if (weight < forward.cost(v)) {
+						forward.set(v, weight, upEdges[arc]);
+						forwardQueue.insertOrDecrease(v, weight);
+						if (weight + backward.cost(v) < best) {	//v has been reached from both ends
+							best = weight + backward.cost(v);
+							meeting = v;
+						}
+					}
+				}
+			}
+			else {
+				int u = backwardQueue.removeMin();
+				double pathWeight = backward.cost(u);
+				for (int arc = upOffsets[u]; arc < upOffsets[u + 1]; arc++) {
+					int v = upHeads[arc];
+					double weight = pathWeight + upWeights[arc];
+					if (weight < backward.cost(v)) {
+						backward.set(v, weight, upEdges[arc]);
+						backwardQueue.insertOrDecrease(v, weight);
+						if (weight + forward.cost(v) < best) {	//v has been reached from both ends
+							best = weight + forward.cost(v);
+							meeting = v;
+						}
+					}
+				}
+			}
+		}
+
+		if (meeting < 0)
+			return RouteResult.unreachable(graph, metric, settled);
+		return new RouteResult(graph, metric, best, unpackPath(source, meeting), settled);
+	}
+
+	/**
+	 * Computes the shortest path costs between every pair of City vertices from two lists
+	 * @param sources are the Cities the routes start at
+	 * @param targets are the Cities the routes end at
+	 * @return matrix of costs, row i for sources.get(i) and column j for targets.get(j)
+	 */
+	public double[][] costs(List<Vertex<City>> sources, List<Vertex<City>> targets) {
+		int[] sourceIds = new int[sources.size()], targetIds = new int[targets.size()];
+		for (int i = 0; i < sourceIds.length; i++)
+			sourceIds[i] = graph.id(sources.get(i));
+		for (int j = 0; j < targetIds.length; j++)
+			targetIds[j] = graph.id(targets.get(j));
+		return costs(sourceIds, targetIds);
+	}
+
+	/**
+	 * Computes the shortest path costs between every pair of city ids from two sets
+	 * Each target's upward search stores (target, cost) in a bucket at every city it settles,
+	 * then each source's upward search scans the buckets of the cities it settles: the best
+	 * sum over the cities both searches settled is the shortest path cost
+	 * @param sources are the ids of the Cities the routes start at
+	 * @param targets are the ids of the Cities the routes end at
+	 * @return matrix of costs, row i for sources[i] and column j for targets[j], infinity if unreachable
+	 */
+	public double[][] costs(int[] sources, int[] targets) {
+		int n = graph.numVertices();
+
+		// run the target searches, keeping their bucket entries in parallel arrays
+		int entries = 0;
+		int[] entryCity = new int[n], entryTarget = new int[n];
+		double[] entryCost = new double[n];
+		for (int j = 0; j < targets.length; j++) {
+			int settled = upwardSearch(targets[j]);
+			if (entries + settled > entryCity.length) {
+				int capacity = Math.max(2 * entryCity.length, entries + settled);
+				entryCity = Arrays.copyOf(entryCity, capacity);
+				entryTarget = Arrays.copyOf(entryTarget, capacity);
+				entryCost = Arrays.copyOf(entryCost, capacity);
+			}
+			for (int i = 0; i < settled; i++) {
+				entryCity[entries] = upSettled[i];
+				entryTarget[entries] = j;
+				entryCost[entries++] = forward.cost(upSettled[i]);
+			}
+		}
+
+		// sort the entries into buckets by city: bucket v is bucketStart[v] to bucketStart[v+1] - 1
+		int[] bucketStart = new int[n + 1];
+		for (int e = 0; e < entries; e++)
+			bucketStart[entryCity[e] + 1]++;
+		for (int v = 0; v < n; v++)
+			bucketStart[v + 1] += bucketStart[v];
+		int[] bucketTarget = new int[entries];
+		double[] bucketCost = new double[entries];
+		int[] next = Arrays.copyOf(bucketStart, n);
+		for (int e = 0; e < entries; e++) {
+			int slot = next[entryCity[e]]++;
+			bucketTarget[slot] = entryTarget[e];
+			bucketCost[slot] = entryCost[e];
+		}
+
+		// run the source searches and read the buckets of every city they settle
+		double[][] matrix = new double[sources.length][targets.length];
+		for (int i = 0; i < sources.length; i++) {
+			double[] row = matrix[i];
+			Arrays.fill(row, Double.POSITIVE_INFINITY);
+			int settled = upwardSearch(sources[i]);
+			for (int k = 0; k < settled; k++) {
+				int v = upSettled[k];
+				double cost = forward.cost(v);
+				for (int b = bucketStart[v]; b < bucketStart[v + 1]; b++)
+					if (cost + bucketCost[b] < row[bucketTarget[b]])
+						row[bucketTarget[b]] = cost + bucketCost[b];
+			}
+		}
+		return matrix;
+	}
+
+	/**
+	 * Runs a full Dijkstra search upward from a city, with stall-on-demand pruning: a city reached
+	 * more cheaply through a higher ranked neighbor is not on any shortest up-down path, so it is
+	 * neither expanded nor reported.
+	 * @param start is the id of the city to search from
+	 * @return number of cities settled without being stalled, stored in upSettled with costs in forward
+	 */
+	private int upwardSearch(int start) {
+		forward.reset();
+		forwardQueue.clear();
+
+		forward.set(start, 0.0, -1);
+		forwardQueue.insert(start, 0.0);
+		int settled = 0;
+		while (!forwardQueue.isEmpty()) {
+			int u = forwardQueue.removeMin();
+			boolean stalled = false;
+			double pathWeight = forward.cost(u);
+			for (int arc = upOffsets[u]; arc < upOffsets[u + 1] && !stalled; arc++)	//edges are undirected, so also lead down to u
+				stalled = forward.cost(upHeads[arc]) + upWeights[arc] < pathWeight;
+			if (stalled)
+				continue;
+			upSettled[settled++] = u;
+			for (int arc = upOffsets[u]; arc < upOffsets[u + 1]; arc++) {
+				int v = upHeads[arc];
+				double weight = pathWeight + upWeights[arc];
+				if (weight < forward.cost(v)) {
+					forward.set(v, weight, upEdges[arc]);
+					forwardQueue.insertOrDecrease(v, weight);
+				}
+			}
+		}
+		return settled;
+	}
+
+	/**
+	 * Unpacks the hierarchy edges from source up to the meeting city and from there down to
+	 * the destination into the sequence of original cities
+	 * @return city ids from source to destination
+	 */
+	private int[] unpackPath(int source, int meeting) {
+		//the forward half is stored from the meeting city back, collect its edges source first
+		int up = 0;
+		for (int v = meeting; forward.prev(v) >= 0; v = other(forward.prev(v), v))
+			up++;
+		int[] upward = new int[up];
+		for (int v = meeting; forward.prev(v) >= 0; v = other(forward.prev(v), v))
+			upward[--up] = forward.prev(v);
+
+		int length = 0;
+		path[length++] = source;
+		int at = source;
+		for (int e : upward) {
+			length = unpack(e, at, length);
+			at = other(e, at);
+		}
+		for (int v = meeting; backward.prev(v) >= 0; v = other(backward.prev(v), v))
+			length = unpack(backward.prev(v), v, length);
+		return Arrays.copyOf(path, length);
+	}
+
+	/**
+	 * Appends the cities of hierarchy edge @param e, walked starting at city @param from, to path
+	 * @param length is the number of cities already in path
+	 * @return new number of cities in path
+	 */
+	private int unpack(int e, int from, int length) {
+		if (edgeMid[e] < 0) {				//original highway
+			path[length++] = other(e, from);
+			return length;
+		}
+		if (from == edgeU[e]) {
+			length = unpack(edgeFirst[e], from, length);
+			return unpack(edgeSecond[e], edgeMid[e], length);
+		}
+		length = unpack(edgeSecond[e], from, length);
+		return unpack(edgeFirst[e], edgeMid[e], length);
+	}
+
+	/**
+	 * @return endpoint of hierarchy edge @param e opposite city @param v
+	 */
+	private int other(int e, int v) {
+		return (edgeU[e] == v) ? edgeV[e] : edgeU[e];
+	}
+
+	/**
+	 * @return endpoint of hierarchy edge @param e that was contracted first
+	 */
+	private int lower(int e) {
+		return (rank[edgeU[e]] < rank[edgeV[e]]) ? edgeU[e] : edgeV[e];
+	}
+
+	/**
+	 * Loads every Highway of the snapshot as a hierarchy edge
+	 */
+	private void readEdges() {
+		int n = graph.numVertices();
+		int capacity = Math.max(16, graph.numArcs());
+		edgeU = new int[capacity];
+		edgeV = new int[capacity];
+		edgeMid = new int[capacity];
+		edgeFirst = new int[capacity];
+		edgeSecond = new int[capacity];
+		edgeWeight = new double[capacity];
+		adjacent = new int[n][];
+		degree = new int[n];
+		for (int v = 0; v < n; v++)
+			adjacent[v] = new int[Math.max(4, graph.endArc(v) - graph.firstArc(v))];
+
+		double[] weights = graph.weights(metric);
+		for (int u = 0; u < n; u++) {
+			for (int arc = graph.firstArc(u); arc < graph.endArc(u); arc++) {
+				int v = graph.head(arc);
+				if (u < v)		//each Highway appears once from each end
+					addEdge(u, v, weights[arc], -1, -1, -1);
+			}
+		}
+	}
+
+	/**
+	 * Adds a hierarchy edge between cities u and w
+	 * @param mid is the contracted city a shortcut bypasses, -1 for an original highway
+	 * @param first is the child edge touching u, -1 for an original highway
+	 * @param second is the child edge touching w, -1 for an original highway
+	 */
+	private void addEdge(int u, int w, double weight, int mid, int first, int second) {
+		if (numEdges == edgeU.length) {
+			int capacity = 2 * numEdges;
+			edgeU = Arrays.copyOf(edgeU, capacity);
+			edgeV = Arrays.copyOf(edgeV, capacity);
+			edgeMid = Arrays.copyOf(edgeMid, capacity);
+			edgeFirst = Arrays.copyOf(edgeFirst, capacity);
+			edgeSecond = Arrays.copyOf(edgeSecond, capacity);
+			edgeWeight = Arrays.copyOf(edgeWeight, capacity);
+		}
+		int e = numEdges++;
+		edgeU[e] = u;
+		edgeV[e] = w;
+		edgeWeight[e] = weight;
+		edgeMid[e] = mid;
+		edgeFirst[e] = first;
+		edgeSecond[e] = second;
+		addAdjacent(u, e);
+		addAdjacent(w, e);
+	}
+
+	/**
+	 * Records hierarchy edge @param e in the adjacency list of city @param v
+	 */
+	private void addAdjacent(int v, int e) {
+		if (degree[v] == adjacent[v].length)
+			adjacent[v] = Arrays.copyOf(adjacent[v], 2 * degree[v]);
+		adjacent[v][degree[v]++] = e;
+	}
+
+	/**
+	 * Contracts every city in order of importance, using lazy updates of the priorities
+	 */
+	private void contractAll() {
+		int n = graph.numVertices();
+		contracted = new boolean[n];
+		witnessQueue = new IndexedDaryHeap(n);
+		witnessWeight = new double[n];
+		Arrays.fill(witnessWeight, Double.POSITIVE_INFINITY);
+		touchedCities = new int[16];
+		int[] deletedNeighbors = new int[n];
+
+		IndexedDaryHeap order = new IndexedDaryHeap(n);
+		for (int v = 0; v < n; v++)
+			order.insert(v, priority(v, deletedNeighbors));
+
+		int next = 0;
+		while (!order.isEmpty()) {
+			int v = order.removeMin();
+			double current = priority(v, deletedNeighbors);
+			if (!order.isEmpty() && current > order.minKey()) {	//priority went stale, try again later
+				order.insert(v, current);
+				continue;
+			}
+			contract(v, true);
+			contracted[v] = true;
+			rank[v] = next++;
+			for (int i = 0; i < degree[v]; i++) {
+				int u = other(adjacent[v][i], v);
+				if (!contracted[u]) {
+					deletedNeighbors[u]++;
+					order.insertOrDecrease(u, priority(u, deletedNeighbors));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return contraction priority of city @param v: edge difference plus contracted neighbors
+	 */
+	private double priority(int v, int[] deletedNeighbors) {
+		int remaining = 0;
+		for (int i = 0; i < degree[v]; i++)
+			if (!contracted[other(adjacent[v][i], v)])
+				remaining++;
+		return contract(v, false) - remaining + deletedNeighbors[v];
+	}
+
+	/**
+	 * Finds the shortcuts needed to contract city v
+	 * @param v is the city being contracted
+	 * @param apply is true to add the shortcuts, false to only count them
+	 * @return number of shortcuts needed
+	 */
+	private int contract(int v, boolean apply) {
+		int shortcuts = 0;
+		for (int i = 0; i < degree[v]; i++) {
+			int ei = adjacent[v][i];
+			int u = other(ei, v);
+			if (contracted[u])
+				continue;
+
+			//longest path through v from u to a later neighbor, bounds the witness search
+			//(-1 if there is none, a path over zero weight highways still needs its witness search)
+			double limit = -1.0;
+			for (int j = i + 1; j < degree[v]; j++) {
+				int w = other(adjacent[v][j], v);
+				if (!contracted[w] && w != u)
+					limit = Math.max(limit, edgeWeight[ei] + edgeWeight[adjacent[v][j]]);
+			}
+			if (limit < 0.0)
+				continue;
+			witnessSearch(u, v, limit);
+
+			for (int j = i + 1; j < degree[v]; j++) {
+				int ej = adjacent[v][j];
+				int w = other(ej, v);
+				if (contracted[w] || w == u)
+					continue;
+				double via = edgeWeight[ei] + edgeWeight[ej];
+				if (witnessWeight[w] > via) {		//no path avoiding v is as short
+					shortcuts++;
+					if (apply)
+						addShortcut(u, w, via, v, ei, ej);
+				}
+			}
+			clearWitness();
+		}
+		return shortcuts;
+	}
+
+	/**
+	 * Adds the shortcut u - v - w, or lowers the weight of an existing edge between u and w
+	 * @param first is the edge between u and v
+	 * @param second is the edge between v and w
+	 */
+	private void addShortcut(int u, int w, double weight, int v, int first, int second) {
+		for (int i = 0; i < degree[u]; i++) {
+			int e = adjacent[u][i];
+			if (other(e, u) == w) {
+				if (edgeWeight[e] > weight) {	//replace the longer edge by the shortcut
+					edgeWeight[e] = weight;
+					edgeMid[e] = v;
+					edgeFirst[e] = (edgeU[e] == u) ? first : second;
+					edgeSecond[e] = (edgeU[e] == u) ? second : first;
+				}
+				return;
+			}
+		}
+		numShortcuts++;
+		addEdge(u, w, weight, v, first, second);
+	}
+
+	/**
+	 * Runs a bounded Dijkstra search from u in the remaining graph without city v
+	 * Results are left in witnessWeight; cities never reached stay at infinity
+	 * @param limit is the path length beyond which the search stops
+	 */
+	private void witnessSearch(int u, int v, double limit) {
+		witnessWeight[u] = 0.0;
+		witnessQueue.insert(u, 0.0);
+		touchedCount = 0;
+		touched(u);
+		int settled = 0;
+		while (!witnessQueue.isEmpty() && witnessQueue.minKey() <= limit && settled < WITNESS_SETTLE_LIMIT) {
+			int x = witnessQueue.removeMin();
+			settled++;
+			for (int i = 0; i < degree[x]; i++) {
+				int e = adjacent[x][i];
+				int y = other(e, x);
+				if (y == v || contracted[y])
+					continue;
+				double weight = witnessWeight[x] + edgeWeight[e];
+				if (weight < witnessWeight[y]) {
+					if (witnessWeight[y] == Double.POSITIVE_INFINITY)
+						touched(y);
+					witnessWeight[y] = weight;
+					witnessQueue.insertOrDecrease(y, weight);
+				}
+			}
+		}
+		witnessQueue.clear();
+	}
+
+	/**
+	 * Remembers that witnessWeight of city @param v was set
+	 */
+	private void touched(int v) {
+		if (touchedCount == touchedCities.length)
+			touchedCities = Arrays.copyOf(touchedCities, 2 * touchedCount);
+		touchedCities[touchedCount++] = v;
+	}
+
+	/**
+	 * Resets witnessWeight of every touched city to infinity
+	 */
+	private void clearWitness() {
+		for (int i = 0; i < touchedCount; i++)
+			witnessWeight[touchedCities[i]] = Double.POSITIVE_INFINITY;
+		touchedCount = 0;
+	}
+}
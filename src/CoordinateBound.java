@@ -0,0 +1,73 @@
+/**
+ * CoordinateBound Class is an admissible A* heuristic built from City pixel locations:
+ * The straight-line pixel distance between two cities, scaled by the smallest cost per pixel
+ * observed over all arcs of the graph, can never exceed the cost of a path between them.
+ *
+ * For DISTANCE the scale is the minimum miles per pixel of any Highway.
+ * For TIME it is additionally divided by the fastest speed (miles per hour) of any Highway.
+ */
+
+public class CoordinateBound implements LowerBound {
+	private final RoadGraph graph;		//snapshot supplying the City locations
+	private final Metric metric;		//weight the bound applies to
+	private final double scale;			//cost per pixel of straight-line distance
+
+	/**
+	 * Constructor for the CoordinateBound class, calibrates the scale over every arc of the graph
+	 * @param graph is the snapshot to estimate costs on
+	 * @param metric is the weight the bound applies to
+	 */
+	public CoordinateBound(RoadGraph graph, Metric metric) {
+		this.graph = graph;
+		this.metric = metric;
+
+		double milesPerPixel = Double.POSITIVE_INFINITY;	//smallest miles per pixel over all arcs
+		double maxSpeed = 0.0;								//fastest miles per hour over all arcs
+		for (int u = 0; u < graph.numVertices(); u++) {
+			for (int arc = graph.firstArc(u); arc < graph.endArc(u); arc++) {
+				int v = graph.head(arc);
+				double pixels = Math.hypot(graph.x(u) - graph.x(v), graph.y(u) - graph.y(v));
+				double miles = graph.weight(arc, Metric.DISTANCE);
+				double hours = graph.weight(arc, Metric.TIME);
+				if (Double.isInfinite(miles) || Double.isInfinite(hours))
+					continue;		//closed Highway
+				if (pixels > 0)		//cities drawn on top of each other say nothing about scale
+					milesPerPixel = Math.min(milesPerPixel, miles / pixels);
+				if (hours > 0)
+					maxSpeed = Math.max(maxSpeed, miles / hours);
+				else if (miles > 0)	//instantaneous travel, no useful time bound exists
+					maxSpeed = Double.POSITIVE_INFINITY;
+			}
+		}
+		if (milesPerPixel == Double.POSITIVE_INFINITY)		//no arcs to calibrate on
+			milesPerPixel = 0.0;
+
+		if (metric == Metric.DISTANCE)
+			scale = milesPerPixel;
+		else
+			scale = (maxSpeed > 0) ? milesPerPixel / maxSpeed : 0.0;
+	}
+
+	/**
+	 * @return metric the bound applies to
+	 */
+	public Metric metric() {
+		return metric;
+	}
+
+	/**
+	 * @return cost per pixel of straight-line distance used by the bound
+	 */
+	public double getScale() {
+		return scale;
+	}
+
+	/**
+	 * @param v is the id of the city the search has reached
+	 * @param destination is the id of the City the search is heading to
+	 * @return straight-line pixel distance from v to destination times the calibrated scale
+	 */
+	public double estimate(int v, int destination) {
+		return scale * Math.hypot(graph.x(v) - graph.x(destination), graph.y(v) - graph.y(destination));
+	}
+}
@@ -0,0 +1,449 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import net.datastructures.Vertex;
+
+/**
+ * DeltaStepping Class computes one-to-all shortest path trees with the delta-stepping algorithm
+ * (Meyer and Sanders), relaxing many cities at once on a fork-join pool:
+ * Tentative costs are kept in buckets of width delta. The cities of the lowest nonempty bucket are
+ * settled together: their light arcs (weight at most delta) are relaxed in parallel, again and
+ * again while that puts cities back into the same bucket, then their heavy arcs are relaxed in
+ * parallel once. Costs are lowered with compare-and-set, so no locks are taken.
+ *
+ * Costs are exactly those of Dijkstra's algorithm, since every final cost is the sum of the final
+ * cost of its previous city and one arc weight. The previous cities are chosen after the search
+ * from those sums, and the settled order is sorted by cost, so the tree reads like Dijkstra's.
+ * A small delta means little wasted work but many buckets with little parallel work in each, a
+ * large delta the reverse; the default is the mean arc weight.
+ *
+ * The search arrays are reused between searches, so an instance must not be shared between threads.
+ */
+
+public class DeltaStepping {
+	private static final int CITIES_PER_TASK = 256;		//cities each fork-join leaf task relaxes or finishes
+	private static final int MAX_BUCKETS = 1 << 20;		//largest number of buckets, bounds how small delta may be
+
+	private final RoadGraph graph;			//snapshot being searched
+	private final ForkJoinPool pool;		//runs the relaxations of a bucket in parallel
+	private final AtomicLongArray cost;		//tentative cost of each city id, as double bits (ordered like the costs, none is negative)
+	private final AtomicIntegerArray touchedIn;		//phase in which each city was last added to touched
+	private final int[] touched;			//cities whose cost was lowered in the current phase
+	private final AtomicInteger numTouched = new AtomicInteger();
+	private final boolean[] settled;		//true once the bucket of a city is done
+	private final int[] inBucket;			//number of the bucket a city was last settled with
+	private final long[] bucketOf;			//bucket a city was last added to, its entries in other buckets are stale
+	private final int[] order;				//settled city ids, bucket by bucket
+	private int[] frontier, nextFrontier;	//cities whose light arcs are relaxed in the current and next phase
+	private final int[] rank;				//pass in which a city tied with its previous city was given it, 0 if not tied
+
+	// state of the current search, read by the tasks
+	private double[] weights, inWeights;
+	private double delta;
+	private int phase;
+
+	/**
+	 * Constructor for the DeltaStepping class, runs the relaxations on the common fork-join pool
+	 * @param graph is the snapshot to search
+	 */
+	public DeltaStepping(RoadGraph graph) {
+		this(graph, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor for the DeltaStepping class
+	 * @param graph is the snapshot to search
+	 * @param pool is the fork-join pool the relaxations run on
+	 */
+	public DeltaStepping(RoadGraph graph, ForkJoinPool pool) {
+		this.graph = graph;
+		this.pool = pool;
+		int n = graph.numVertices();
+		cost = new AtomicLongArray(n);
+		touchedIn = new AtomicIntegerArray(n);
+		touched = new int[n];
+		settled = new boolean[n];
+		inBucket = new int[n];
+		bucketOf = new long[n];
+		order = new int[n];
+		frontier = new int[n];
+		nextFrontier = new int[n];
+		rank = new int[n];
+	}
+
+	/**
+	 * @return snapshot being searched
+	 */
+	public RoadGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return the delta @method tree uses under @param metric if none is given: the mean weight of the open arcs
+	 */
+	public double defaultDelta(Metric metric) {
+		double sum = 0;
+		int open = 0;
+		for (double weight : graph.weights(metric))
+			if (weight != Double.POSITIVE_INFINITY) {
+				sum += weight;
+				open++;
+			}
+		return (open == 0 || sum == 0) ? 1.0 : sum / open;
+	}
+
+	/**
+	 * Computes the full shortest path tree of a City with the default delta
+	 * @param source is the City at the root of the tree
+	 * @param metric is the weight to minimize
+	 * @return shortest paths to every reachable city
+	 */
+	public ShortestPathTree tree(Vertex<City> source, Metric metric) {
+		return tree(graph.id(source), metric, defaultDelta(metric));
+	}
+
+	/**
+	 * Computes the full shortest path tree of a city id
+	 * @param source is the id of the City at the root of the tree
+	 * @param metric is the weight to minimize
+	 * @param delta is the bucket width, in miles or hours
+	 * @return shortest paths to every reachable city
+	 * @throws IllegalArgumentException if delta is not positive, or so small that the arcs would span too many buckets
+	 */
+	public ShortestPathTree tree(int source, Metric metric, double delta) throws IllegalArgumentException {
+		weights = graph.weights(metric);
+		inWeights = graph.inWeights(metric);
+		double maxWeight = 0;
+		for (double weight : weights)
+			if (weight != Double.POSITIVE_INFINITY)
+				maxWeight = Math.max(maxWeight, weight);
+		if (!(delta > 0) || maxWeight / delta >= MAX_BUCKETS - 2)
+			throw new IllegalArgumentException("Delta must be positive and at least the longest arc / " + MAX_BUCKETS + ": " + delta);
+		this.delta = delta;
+
+		// an arc reaches at most maxWeight / delta buckets past the one being settled, so the buckets can be reused cyclically
+		int numBuckets = (int) (maxWeight / delta) + 2;
+		int[][] buckets = new int[numBuckets][];
+		int[] bucketSize = new int[numBuckets];
+		int pending = 0;		//entries in all buckets, some of them stale
+
+		int n = graph.numVertices();
+		long infinity = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+		for (int v = 0; v < n; v++) {
+			cost.set(v, infinity);
+			touchedIn.set(v, 0);
+		}
+		Arrays.fill(settled, false);
+		Arrays.fill(inBucket, 0);
+		phase = 0;
+
+		cost.set(source, Double.doubleToLongBits(0.0));
+		bucketOf[source] = 0;
+		buckets[0] = new int[] { source };
+		bucketSize[0] = 1;
+		pending = 1;
+		int numSettled = 0, numBucketsSettled = 0;
+		int[] bucketStart = new int[16];		//position in order of the first city of each settled bucket
+
+		for (long current = 0; pending > 0; current++) {
+			int slot = (int) (current % numBuckets);
+			pending -= bucketSize[slot];
+			int frontierSize = 0, start = numSettled;
+			for (int i = 0; i < bucketSize[slot]; i++) {		//drop entries of cities that moved to a lower bucket
+				int v = buckets[slot][i];
+				if (!settled[v] && bucketOf[v] == current && inBucket[v] != numBucketsSettled + 1) {
+					inBucket[v] = numBucketsSettled + 1;
+					frontier[frontierSize++] = v;
+					order[numSettled++] = v;
+				}
+			}
+			bucketSize[slot] = 0;
+			if (frontierSize == 0)
+				continue;
+
+			// relax light arcs until no city re-enters this bucket
+			while (frontierSize > 0) {
+				relax(frontier, 0, frontierSize, false);
+				frontierSize = 0;
+				for (int i = 0; i < numTouched.get(); i++) {
+					int v = touched[i];
+					long b = bucket(v);
+					bucketOf[v] = b;
+					if (b == current) {
+						nextFrontier[frontierSize++] = v;
+						if (inBucket[v] != numBucketsSettled + 1) {
+							inBucket[v] = numBucketsSettled + 1;
+							order[numSettled++] = v;
+						}
+					}
+					else {
+						add(buckets, bucketSize, (int) (b % numBuckets), v);
+						pending++;
+					}
+				}
+				int[] swap = frontier;
+				frontier = nextFrontier;
+				nextFrontier = swap;
+			}
+
+			// the bucket's costs are final, relax its heavy arcs once
+			// a heavy arc always leads past this bucket, even where rounding cost / delta says otherwise,
+			// since this bucket's slot is already emptied and would not be drained again before it is reused
+			relax(order, start, numSettled, true);
+			for (int i = 0; i < numTouched.get(); i++) {
+				int v = touched[i];
+				bucketOf[v] = Math.max(current + 1, bucket(v));
+				add(buckets, bucketSize, (int) (bucketOf[v] % numBuckets), v);
+				pending++;
+			}
+			for (int i = start; i < numSettled; i++)
+				settled[order[i]] = true;
+			if (numBucketsSettled + 1 == bucketStart.length)
+				bucketStart = Arrays.copyOf(bucketStart, 2 * bucketStart.length);
+			bucketStart[numBucketsSettled++] = start;
+		}
+		bucketStart[numBucketsSettled] = numSettled;
+
+		// read back the costs, choose the previous cities and sort each bucket by cost
+		double[] costs = new double[n];
+		int[] prev = new int[n];
+		Arrays.fill(costs, Double.POSITIVE_INFINITY);
+		Arrays.fill(prev, -1);
+		Arrays.fill(rank, 0);
+		run(new Finish(costs, prev, source, 0, numSettled), numSettled);
+		resolveTies(costs, prev, source, numSettled);
+		run(new SortBuckets(costs, bucketStart, 0, numBucketsSettled), numSettled);
+		return new ShortestPathTree(graph, metric, source, costs, prev, Arrays.copyOf(order, numSettled));
+	}
+
+	/**
+	 * Relaxes the light or heavy arcs of some cities in parallel, the cities whose cost was lowered
+	 * are in touched[0] to touched[numTouched - 1] afterwards, each once
+	 */
+	private void relax(int[] cities, int from, int to, boolean heavy) {
+		phase++;
+		numTouched.set(0);
+		run(new Relax(cities, from, to, heavy), to - from);
+	}
+
+	/**
+	 * Runs a task on the pool, or on this thread if there are too few cities to split between threads
+	 */
+	private void run(RecursiveAction task, int cities) {
+		if (cities > CITIES_PER_TASK)
+			pool.invoke(task);
+		else
+			task.invoke();
+	}
+
+	/**
+	 * @return number of the bucket the tentative cost of city @param v is in
+	 */
+	private long bucket(int v) {
+		return (long) (Double.longBitsToDouble(cost.get(v)) / delta);
+	}
+
+	/**
+	 * Appends city @param v to bucket @param slot
+	 */
+	private static void add(int[][] buckets, int[] bucketSize, int slot, int v) {
+		if (buckets[slot] == null)
+			buckets[slot] = new int[16];
+		else if (bucketSize[slot] == buckets[slot].length)
+			buckets[slot] = Arrays.copyOf(buckets[slot], 2 * bucketSize[slot]);
+		buckets[slot][bucketSize[slot]++] = v;
+	}
+
+	/**
+	 * Gives a previous city to the cities only reached through zero-weight arcs from cities of the same
+	 * cost, which Finish leaves at -2: one pass at a time, from a city that had its own previous city
+	 * before the pass, so following previous cities never goes round in a circle
+	 */
+	private void resolveTies(double[] costs, int[] prev, int source, int numSettled) {
+		int tied = 0;
+		for (int i = 0; i < numSettled; i++)
+			if (prev[order[i]] == -2)
+				tied++;
+		for (int pass = 1; tied > 0; pass++) {
+			int[] resolved = new int[tied];
+			int numResolved = 0;
+			for (int i = 0; i < numSettled; i++) {
+				int v = order[i];
+				if (prev[v] != -2)
+					continue;
+				for (int arc = graph.firstInArc(v); arc < graph.endInArc(v); arc++) {
+					int u = graph.tail(arc);
+					if (costs[u] + inWeights[arc] == costs[v]
+							&& (u == source || prev[u] >= 0) && rank[u] < pass) {
+						resolved[numResolved++] = v;
+						rank[v] = -u - 1;		//previous city, set after the pass
+						break;
+					}
+				}
+			}
+			for (int i = 0; i < numResolved; i++) {
+				prev[resolved[i]] = -rank[resolved[i]] - 1;
+				rank[resolved[i]] = pass;
+			}
+			tied -= numResolved;
+		}
+	}
+
+	/**
+	 * Sorts order[from] to order[to - 1] by cost, and cities of the same cost by rank (merge sort)
+	 * @param buffer is scratch space of at least to - from entries
+	 */
+	private void sortByCost(double[] costs, int from, int to, int[] buffer) {
+		if (to - from <= 16) {		//insertion sort for short ranges
+			for (int i = from + 1; i < to; i++) {
+				int v = order[i];
+				int j = i - 1;
+				while (j >= from && before(v, order[j], costs)) {
+					order[j + 1] = order[j];
+					j--;
+				}
+				order[j + 1] = v;
+			}
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		sortByCost(costs, from, mid, buffer);
+		sortByCost(costs, mid, to, buffer);
+		System.arraycopy(order, from, buffer, 0, to - from);
+		int i = 0, j = mid - from, k = from;
+		while (i < mid - from && j < to - from)
+			order[k++] = before(buffer[j], buffer[i], costs) ? buffer[j++] : buffer[i++];
+		while (i < mid - from)
+			order[k++] = buffer[i++];
+		while (j < to - from)
+			order[k++] = buffer[j++];
+	}
+
+	/**
+	 * @return true if city @param u goes before city @param v in the settled order
+	 */
+	private boolean before(int u, int v, double[] costs) {
+		return costs[u] < costs[v] || (costs[u] == costs[v] && rank[u] < rank[v]);
+	}
+
+	/**
+	 * Relaxes the light or heavy arcs of a range of cities
+	 */
+	private class Relax extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int[] cities;
+		private final int from, to;
+		private final boolean heavy;		//true to relax the arcs heavier than delta, false for the others
+
+		Relax(int[] cities, int from, int to, boolean heavy) {
+			this.cities = cities;
+			this.from = from;
+			this.to = to;
+			this.heavy = heavy;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > CITIES_PER_TASK) {		//split the range in half
+				int mid = (from + to) >>> 1;
+				invokeAll(new Relax(cities, from, mid, heavy), new Relax(cities, mid, to, heavy));
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				int u = cities[i];
+				double base = Double.longBitsToDouble(cost.get(u));
+				for (int arc = graph.firstArc(u); arc < graph.endArc(u); arc++) {
+					double weight = weights[arc];
+					if ((weight > delta) != heavy)
+						continue;
+					int v = graph.head(arc);
+					long lowered = Double.doubleToLongBits(base + weight);
+					for (long old = cost.get(v); lowered < old; old = cost.get(v))
+						if (cost.compareAndSet(v, old, lowered)) {		//lower v's cost unless another thread lowered it further
+							if (touchedIn.get(v) != phase && touchedIn.getAndSet(v, phase) != phase)
+								touched[numTouched.getAndIncrement()] = v;
+							break;
+						}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads back the final costs of a range of settled cities and chooses their previous cities:
+	 * a city of lower cost whose cost plus the arc weight is exactly the city's cost, or -2 if
+	 * there is only one of the same cost (through a zero-weight arc), left to resolveTies
+	 */
+	private class Finish extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final double[] costs;
+		private final int[] prev;
+		private final int source, from, to;
+
+		Finish(double[] costs, int[] prev, int source, int from, int to) {
+			this.costs = costs;
+			this.prev = prev;
+			this.source = source;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > CITIES_PER_TASK) {		//split the range in half
+				int mid = (from + to) >>> 1;
+				invokeAll(new Finish(costs, prev, source, from, mid), new Finish(costs, prev, source, mid, to));
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				int v = order[i];
+				costs[v] = Double.longBitsToDouble(cost.get(v));
+				if (v == source)
+					continue;
+				prev[v] = -2;
+				for (int arc = graph.firstInArc(v); arc < graph.endInArc(v); arc++) {
+					double before = Double.longBitsToDouble(cost.get(graph.tail(arc)));
+					if (before < costs[v] && before + inWeights[arc] == costs[v]) {
+						prev[v] = graph.tail(arc);
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sorts the cities of a range of settled buckets by cost, the buckets are already in order
+	 */
+	private class SortBuckets extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final double[] costs;
+		private final int[] bucketStart;
+		private final int from, to;			//range of bucket numbers
+
+		SortBuckets(double[] costs, int[] bucketStart, int from, int to) {
+			this.costs = costs;
+			this.bucketStart = bucketStart;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1 && bucketStart[to] - bucketStart[from] > CITIES_PER_TASK) {		//split the buckets in half
+				int mid = (from + to) >>> 1;
+				invokeAll(new SortBuckets(costs, bucketStart, from, mid), new SortBuckets(costs, bucketStart, mid, to));
+				return;
+			}
+			int largest = 0;
+			for (int b = from; b < to; b++)
+				largest = Math.max(largest, bucketStart[b + 1] - bucketStart[b]);
+			int[] buffer = new int[largest];
+			for (int b = from; b < to; b++)
+				sortByCost(costs, bucketStart[b], bucketStart[b + 1], buffer);
+		}
+	}
+}
@@ -0,0 +1,234 @@
+import java.util.Arrays;
+import net.datastructures.Vertex;
+
+/**
+ * DialDijkstra Class runs Dijkstra's algorithm on fixed-point integer weights (tenths of a mile or
+ * whole minutes, see Metric.fixedWeight) with Dial's bucket queue instead of a comparison heap:
+ * Path costs are whole numbers and a settled cost is never exceeded by more than the heaviest arc C,
+ * so C + 1 buckets, reused cyclically, hold every reached city by its cost. Each bucket is a doubly
+ * linked list threaded through int arrays, so inserting, moving and removing a city take constant
+ * time, and finding the next city only steps the bucket cursor forward.
+ *
+ * Costs are exact in whole units; converted back to miles or hours they differ from the floating
+ * point engines by at most half a unit per highway on the route, from rounding each Highway.
+ * @method compare checks a tree against Dijkstra's tree of the same source within that tolerance.
+ *
+ * The search arrays are reused between searches, so an instance must not be shared between threads.
+ */
+
+public class DialDijkstra {
+	private final RoadGraph graph;			//snapshot being searched
+	private final long[] pathWeight;		//tentative path length from source in whole units for each city id
+	private final int[] prev;				//previous city id in the shortest path, or -1
+	private final int[] order;				//city ids in the order they were settled
+	private final int[] next, before;		//neighbours of each queued city in its bucket's list, -1 at the ends
+	private final boolean[] queued;			//true while a city is in a bucket
+	private final boolean[] isTarget;		//marks the targets of the current search
+	private int[] first = new int[0];		//first city of each bucket's list, -1 if the bucket is empty
+
+	/**
+	 * Constructor for the DialDijkstra class
+	 * @param graph is the snapshot to search
+	 */
+	public DialDijkstra(RoadGraph graph) {
+		this.graph = graph;
+		int n = graph.numVertices();
+		pathWeight = new long[n];
+		prev = new int[n];
+		order = new int[n];
+		next = new int[n];
+		before = new int[n];
+		queued = new boolean[n];
+		isTarget = new boolean[n];
+	}
+
+	/**
+	 * @return snapshot being searched
+	 */
+	public RoadGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Computes the full shortest path tree of a City
+	 * @param source is the City at the root of the tree
+	 * @param metric is the weight to minimize
+	 * @return shortest paths to every reachable city, costs in miles or hours
+	 */
+	public ShortestPathTree tree(Vertex<City> source, Metric metric) {
+		return search(graph.id(source), metric, null);
+	}
+
+	/**
+	 * Computes the full shortest path tree of a city id
+	 * @param source is the id of the City at the root of the tree
+	 * @param metric is the weight to minimize
+	 * @return shortest paths to every reachable city, costs in miles or hours
+	 */
+	public ShortestPathTree tree(int source, Metric metric) {
+		return search(source, metric, null);
+	}
+
+	/**
+	 * Finds the shortest route between two cities, stopping as soon as the destination is settled
+	 * @param source is the id of the City the route starts at
+	 * @param destination is the id of the City the route ends at
+	 * @param metric is the weight to minimize
+	 * @return the shortest route, cost in miles or hours, not found if destination is unreachable
+	 */
+	public RouteResult route(int source, int destination, Metric metric) {
+		return search(source, metric, new int[] { destination }).route(destination);
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm with a bucket queue from a city until every target is settled
+	 * @param source is the id of the City to search from
+	 * @param metric is the weight to minimize
+	 * @param targets is the ids of the cities the caller needs, the search stops once all are settled
+	 * 		(null to search every city)
+	 * @return tree of the settled cities, costs are the whole-unit costs in miles or hours
+	 */
+	public ShortestPathTree search(int source, Metric metric, int[] targets) {
+		int[] weights = graph.fixedWeights(metric);		//arc weights looked up once per search
+		int heaviest = 0;
+		for (int weight : weights)
+			if (weight != Metric.CLOSED)
+				heaviest = Math.max(heaviest, weight);
+		int numBuckets = heaviest + 1;
+		if (first.length < numBuckets)
+			first = new int[numBuckets];
+		Arrays.fill(first, 0, numBuckets, -1);
+		Arrays.fill(pathWeight, Long.MAX_VALUE);
+		Arrays.fill(prev, -1);
+		Arrays.fill(queued, false);
+
+		int remaining = -1;				//targets not yet settled, -1 if searching every city
+		if (targets != null) {
+			remaining = 0;
+			for (int t : targets)
+				if (!isTarget[t]) {		//count each target once
+					isTarget[t] = true;
+					remaining++;
+				}
+		}
+
+		pathWeight[source] = 0;
+		insert(source, numBuckets);
+		int numQueued = 1, settled = 0;
+		long cursor = 0;				//cost of the bucket being emptied
+
+		while (numQueued > 0 && remaining != 0) {
+			while (first[(int) (cursor % numBuckets)] < 0)		//step to the next nonempty bucket
+				cursor++;
+			int u = first[(int) (cursor % numBuckets)];
+			remove(u, numBuckets);
+			numQueued--;
+			order[settled++] = u;
+			if (targets != null && isTarget[u])
+				remaining--;
+
+			for (int arc = graph.firstArc(u); arc < graph.endArc(u); arc++) {
+				if (weights[arc] == Metric.CLOSED)
+					continue;
+				int v = graph.head(arc);
+				long weight = pathWeight[u] + weights[arc];
+				if (weight < pathWeight[v]) {		//shorter path to v found, move it to its new bucket
+					if (queued[v])
+						remove(v, numBuckets);
+					else
+						numQueued++;
+					pathWeight[v] = weight;
+					prev[v] = u;
+					insert(v, numBuckets);
+				}
+			}
+		}
+
+		if (targets != null)
+			for (int t : targets)
+				isTarget[t] = false;
+
+		// copy out only the settled cities, tentative values of the others are not final
+		double[] cost = new double[graph.numVertices()];
+		int[] parent = new int[graph.numVertices()];
+		Arrays.fill(cost, Double.POSITIVE_INFINITY);
+		Arrays.fill(parent, -1);
+		for (int i = 0; i < settled; i++) {
+			int v = order[i];
+			cost[v] = pathWeight[v] * metric.unit();
+			parent[v] = prev[v];
+		}
+		return new ShortestPathTree(graph, metric, source, cost, parent, Arrays.copyOf(order, settled));
+	}
+
+	/**
+	 * Compares a tree of this engine with the floating point tree of the same source and metric:
+	 * Both must reach the same cities, and each cost may differ by at most half a unit for every
+	 * highway on the longer of the two trees' routes to the city (the rounded route costs no more
+	 * than the exact route rounded, and neither rounded route is off by more than that), plus a
+	 * relative 1e-9 for floating point summation.
+	 * @param rounded is a full tree computed by DialDijkstra
+	 * @param exact is the full tree of the same source and metric from Dijkstra on the same snapshot
+	 * @return largest difference between the costs of any city, in miles or hours
+	 * @throws IllegalArgumentException if the trees do not match, or a cost is beyond the tolerance
+	 */
+	public static double compare(ShortestPathTree rounded, ShortestPathTree exact) throws IllegalArgumentException {
+		if (rounded.getGraph() != exact.getGraph() || rounded.getMetric() != exact.getMetric()
+				|| rounded.getSource() != exact.getSource())
+			throw new IllegalArgumentException("Trees of different snapshots, metrics or sources");
+		int[] roundedHops = hops(rounded), exactHops = hops(exact);
+		double halfUnit = rounded.getMetric().unit() / 2;
+		double largest = 0.0;
+		for (int v = 0; v < rounded.getGraph().numVertices(); v++) {
+			if (rounded.isReached(v) != exact.isReached(v))
+				throw new IllegalArgumentException("City " + v + " is reached by only one of the trees");
+			if (!exact.isReached(v))
+				continue;
+			double difference = Math.abs(rounded.cost(v) - exact.cost(v));
+			double tolerance = halfUnit * Math.max(roundedHops[v], exactHops[v]) + 1e-9 * Math.max(1.0, exact.cost(v));
+			if (difference > tolerance)
+				throw new IllegalArgumentException("Cost of city " + v + " is off by " + difference + ", more than " + tolerance);
+			largest = Math.max(largest, difference);
+		}
+		return largest;
+	}
+
+	/**
+	 * @return number of highways on the route of @param tree to each city, 0 for cities not reached
+	 */
+	private static int[] hops(ShortestPathTree tree) {
+		int[] hops = new int[tree.getGraph().numVertices()];
+		for (int i = 0; i < tree.size(); i++) {		//a city is settled after its previous city
+			int v = tree.settled(i);
+			if (tree.prev(v) >= 0)
+				hops[v] = hops[tree.prev(v)] + 1;
+		}
+		return hops;
+	}
+
+	/**
+	 * Adds city @param v to the front of the bucket of its path weight
+	 */
+	private void insert(int v, int numBuckets) {
+		int bucket = (int) (pathWeight[v] % numBuckets);
+		before[v] = -1;
+		next[v] = first[bucket];
+		if (first[bucket] >= 0)
+			before[first[bucket]] = v;
+		first[bucket] = v;
+		queued[v] = true;
+	}
+
+	/**
+	 * Unlinks city @param v from the bucket of its path weight
+	 */
+	private void remove(int v, int numBuckets) {
+		if (before[v] >= 0)
+			next[before[v]] = next[v];
+		else
+			first[(int) (pathWeight[v] % numBuckets)] = next[v];
+		if (next[v] >= 0)
+			before[next[v]] = before[v];
+		queued[v] = false;
+	}
+}
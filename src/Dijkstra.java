@@ -0,0 +1,193 @@
+import java.util.Arrays;
+import net.datastructures.IndexedDaryHeap;
+import net.datastructures.Vertex;
+
+/**
+ * Dijkstra Class runs Dijkstra's algorithm from one source city over a RoadGraph:
+ * Either one-to-all, or one-to-many with early termination: the search stops as soon as every
+ * requested target city has been settled, and can also be capped at a maximum path cost or a
+ * maximum number of highways (hops) from the source.
+ *
+ * The search arrays are reused between searches and only the cities a search reaches are reset
+ * (see SearchWorkspace), so an instance must not be shared between threads.
+ */
+
+public class Dijkstra {
+	private final RoadGraph graph;			//snapshot being searched
+	private final IndexedDaryHeap queue;	//reached but unsettled city ids keyed by path length
+	private final SearchWorkspace work;		//tentative path length and previous city id of each reached city
+	private final int[] hops;				//number of highways on the path to each city id
+	private final int[] order;				//city ids in the order they were settled
+	private final boolean[] isTarget;		//marks the targets of the current search
+
+	/**
+	 * Constructor for the Dijkstra class
+	 * @param graph is the snapshot to search
+	 */
+	public Dijkstra(RoadGraph graph) {
+		this.graph = graph;
+		int n = graph.numVertices();
+		queue = new IndexedDaryHeap(n);
+		work = new SearchWorkspace(n);
+		hops = new int[n];
+		order = new int[n];
+		isTarget = new boolean[n];
+	}
+
+	/**
+	 * @return snapshot being searched
+	 */
+	public RoadGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Computes the full shortest path tree of a City
+	 * @param source is the City at the root of the tree
+	 * @param metric is the weight to minimize
+	 * @return shortest paths to every reachable city
+	 */
+	public ShortestPathTree tree(Vertex<City> source, Metric metric) {
+		return tree(graph.id(source), metric);
+	}
+
+	/**
+	 * Computes the full shortest path tree of a city id
+	 * @param source is the id of the City at the root of the tree
+	 * @param metric is the weight to minimize
+	 * @return shortest paths to every reachable city
+	 */
+	public ShortestPathTree tree(int source, Metric metric) {
+		return search(source, metric, null, Double.POSITIVE_INFINITY, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Finds every city within a cost budget of a City (an isochrone when the metric is TIME)
+	 * @param source is the City to search from
+	 * @param metric is the weight the budget is measured in
+	 * @param budget is the largest cost from source, in miles or hours
+	 * @return tree of the cities within budget, in order of increasing cost through @method ShortestPathTree.settled
+	 */
+	public ShortestPathTree reachable(Vertex<City> source, Metric metric, double budget) {
+		return reachable(graph.id(source), metric, budget);
+	}
+
+	/**
+	 * Finds every city within a cost budget of a city id, the search stops as soon as the
+	 * closest unsettled city is beyond the budget
+	 * @param source is the id of the City to search from
+	 * @param metric is the weight the budget is measured in
+	 * @param budget is the largest cost from source, in miles or hours
+	 * @return tree of the cities within budget, in order of increasing cost through @method ShortestPathTree.settled
+	 */
+	public ShortestPathTree reachable(int source, Metric metric, double budget) {
+		return search(source, metric, null, budget, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Finds the shortest path costs from a city to a set of target cities,
+	 * stopping as soon as the last target is settled
+	 * @param source is the id of the City to search from
+	 * @param targets is the ids of the cities to find costs to
+	 * @param metric is the weight to minimize
+	 * @return cost to each target in the order given, infinity for unreachable targets
+	 */
+	public double[] costs(int source, int[] targets, Metric metric) {
+		run(source, metric, targets, Double.POSITIVE_INFINITY, Integer.MAX_VALUE);
+		double[] costs = new double[targets.length];
+		for (int i = 0; i < targets.length; i++)
+			costs[i] = work.cost(targets[i]);		//every reached target was settled, the search stops only after the last
+		return costs;
+	}
+
+	/**
+	 * Finds the shortest route between two cities, stopping as soon as the destination is settled
+	 * @param source is the id of the City the route starts at
+	 * @param destination is the id of the City the route ends at
+	 * @param metric is the weight to minimize
+	 * @return the shortest route, not found if destination is unreachable
+	 */
+	public RouteResult route(int source, int destination, Metric metric) {
+		int settled = run(source, metric, new int[] { destination }, Double.POSITIVE_INFINITY, Integer.MAX_VALUE);
+		if (!work.isReached(destination))
+			return RouteResult.unreachable(graph, metric, settled);
+		return new RouteResult(graph, metric, work.cost(destination), work.path(destination), settled);
+	}
+
+	/**
+	 * Runs Dijkstra's algorithm from a city until one of the stopping conditions is met
+	 * @param source is the id of the City to search from
+	 * @param metric is the weight to minimize
+	 * @param targets is the ids of the cities the caller needs, the search stops once all are settled
+	 * 		(null to search every city)
+	 * @param maxCost is the largest path cost to settle, cities beyond it are left unreached
+	 * @param maxHops is the largest number of highways to follow from the source, cities settled
+	 * 		at that depth of the tree are not expanded further
+	 * @return tree of the settled cities
+	 */
+	public ShortestPathTree search(int source, Metric metric, int[] targets, double maxCost, int maxHops) {
+		int settled = run(source, metric, targets, maxCost, maxHops);
+
+		// copy out only the settled cities, tentative values of the others are not final
+		double[] cost = new double[graph.numVertices()];
+		int[] parent = new int[graph.numVertices()];
+		Arrays.fill(cost, Double.POSITIVE_INFINITY);
+		Arrays.fill(parent, -1);
+		for (int i = 0; i < settled; i++) {
+			int v = order[i];
+			cost[v] = work.cost(v);
+			parent[v] = work.prev(v);
+		}
+		return new ShortestPathTree(graph, metric, source, cost, parent, Arrays.copyOf(order, settled));
+	}
+
+	/**
+	 * Runs the search into the workspace, leaving the settled cities at the front of order
+	 * @return number of settled cities
+	 */
+	private int run(int source, Metric metric, int[] targets, double maxCost, int maxHops) {
+		double[] weights = graph.weights(metric);		//arc weights looked up once per search
+		work.reset();
+		queue.clear();
+
+		int remaining = -1;				//targets not yet settled, -1 if searching every city
+		if (targets != null) {
+			remaining = 0;
+			for (int t : targets)
+				if (!isTarget[t]) {		//count each target once
+					isTarget[t] = true;
+					remaining++;
+				}
+		}
+
+		work.set(source, 0.0, -1);
+		hops[source] = 0;
+		queue.insert(source, 0.0);
+		int settled = 0;
+
+		while (!queue.isEmpty() && remaining != 0 && queue.minKey() <= maxCost) {
+			int u = queue.removeMin();
+			order[settled++] = u;
+			if (targets != null && isTarget[u])
+				remaining--;
+			if (hops[u] >= maxHops)			//hop cap reached, do not expand u
+				continue;
+
+			double pathWeight = work.cost(u);
+			for (int arc = graph.firstArc(u); arc < graph.endArc(u); arc++) {
+				int v = graph.head(arc);
+				double weight = pathWeight + weights[arc];
+				if (weight < work.cost(v)) {		//shorter path to v found
+					work.set(v, weight, u);
+					hops[v] = hops[u] + 1;
+					queue.insertOrDecrease(v, weight);
+				}
+			}
+		}
+
+		if (targets != null)
+			for (int t : targets)
+				isTarget[t] = false;
+		return settled;
+	}
+}
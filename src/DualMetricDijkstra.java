@@ -0,0 +1,129 @@
+import java.util.Arrays;
+import net.datastructures.IndexedDaryHeap;
+import net.datastructures.Vertex;
+
+/**
+ * DualMetricDijkstra Class computes the distance-optimal and the time-optimal shortest path trees
+ * of one source city in one call, as two Dijkstra searches run in lockstep.
+ *
+ * Each metric has its own queue, and every step settles the next city of each queue. The two
+ * metrics settle cities in different orders, so the adjacency scans are generally not shared: a
+ * city's arcs are scanned once per metric, except in a step where both queues settle the same
+ * city, when a single scan relaxes both. The costs and predecessors of both metrics are
+ * interleaved (entry 2v for DISTANCE, 2v + 1 for TIME) so they share cache lines.
+ * The result is exactly what two separate Dijkstra runs would return.
+ *
+ * The search arrays are reused between searches, so an instance must not be shared between threads.
+ */
+
+public class DualMetricDijkstra {
+	private final RoadGraph graph;						//snapshot being searched
+	private final IndexedDaryHeap distanceQueue, timeQueue;	//unsettled city ids for each metric
+	private final double[] pathWeight;					//tentative cost, 2v for distance and 2v + 1 for time
+	private final int[] prev;							//previous city id, same layout, -1 if none
+	private final int[] distanceOrder, timeOrder;		//city ids in the order each metric settled them
+
+	/**
+	 * Constructor for the DualMetricDijkstra class
+	 * @param graph is the snapshot to search
+	 */
+	public DualMetricDijkstra(RoadGraph graph) {
+		this.graph = graph;
+		int n = graph.numVertices();
+		distanceQueue = new IndexedDaryHeap(n);
+		timeQueue = new IndexedDaryHeap(n);
+		pathWeight = new double[2 * n];
+		prev = new int[2 * n];
+		distanceOrder = new int[n];
+		timeOrder = new int[n];
+	}
+
+	/**
+	 * Computes both shortest path trees of a City
+	 * @param source is the City at the root of the trees
+	 * @return the trees indexed by Metric ordinal
+	 */
+	public ShortestPathTree[] trees(Vertex<City> source) {
+		return trees(graph.id(source));
+	}
+
+	/**
+	 * Computes both shortest path trees of a city id
+	 * @param source is the id of the City at the root of the trees
+	 * @return the trees indexed by Metric ordinal
+	 */
+	public ShortestPathTree[] trees(int source) {
+		double[] distances = graph.weights(Metric.DISTANCE);
+		double[] times = graph.weights(Metric.TIME);
+		Arrays.fill(pathWeight, Double.POSITIVE_INFINITY);
+		Arrays.fill(prev, -1);
+		distanceQueue.clear();
+		timeQueue.clear();
+
+		pathWeight[2 * source] = 0.0;
+		pathWeight[2 * source + 1] = 0.0;
+		distanceQueue.insert(source, 0.0);
+		timeQueue.insert(source, 0.0);
+		int distanceSettled = 0, timeSettled = 0;
+
+		while (!distanceQueue.isEmpty() || !timeQueue.isEmpty()) {
+			int d = distanceQueue.removeMin();		//-1 once a queue is empty
+			int t = timeQueue.removeMin();
+			if (d >= 0)
+				distanceOrder[distanceSettled++] = d;
+			if (t >= 0)
+				timeOrder[timeSettled++] = t;
+
+			if (d == t) {				//same city settled for both metrics, scan its arcs once
+				for (int arc = graph.firstArc(d); arc < graph.endArc(d); arc++) {
+					int v = graph.head(arc);
+					relax(d, v, 0, distances[arc], distanceQueue);
+					relax(d, v, 1, times[arc], timeQueue);
+				}
+				continue;
+			}
+			if (d >= 0)
+				for (int arc = graph.firstArc(d); arc < graph.endArc(d); arc++)
+					relax(d, graph.head(arc), 0, distances[arc], distanceQueue);
+			if (t >= 0)
+				for (int arc = graph.firstArc(t); arc < graph.endArc(t); arc++)
+					relax(t, graph.head(arc), 1, times[arc], timeQueue);
+		}
+
+		ShortestPathTree[] trees = new ShortestPathTree[Metric.values().length];
+		trees[Metric.DISTANCE.ordinal()] = extract(source, Metric.DISTANCE, 0, distanceOrder, distanceSettled);
+		trees[Metric.TIME.ordinal()] = extract(source, Metric.TIME, 1, timeOrder, timeSettled);
+		return trees;
+	}
+
+	/**
+	 * Relaxation step for one metric
+	 * @param u is the settled city the arc leaves
+	 * @param v is the city the arc leads to
+	 * @param slot is 0 for distance, 1 for time
+	 * @param weight is the arc's weight under the metric
+	 * @param queue is the metric's queue
+	 */
+	private void relax(int u, int v, int slot, double weight, IndexedDaryHeap queue) {
+		double candidate = pathWeight[2 * u + slot] + weight;
+		if (candidate < pathWeight[2 * v + slot]) {		//shorter path to v found
+			pathWeight[2 * v + slot] = candidate;
+			prev[2 * v + slot] = u;
+			queue.insertOrDecrease(v, candidate);
+		}
+	}
+
+	/**
+	 * Copies one metric's interleaved entries into a ShortestPathTree
+	 */
+	private ShortestPathTree extract(int source, Metric metric, int slot, int[] order, int settled) {
+		int n = graph.numVertices();
+		double[] cost = new double[n];
+		int[] parent = new int[n];
+		for (int v = 0; v < n; v++) {
+			cost[v] = pathWeight[2 * v + slot];
+			parent[v] = prev[2 * v + slot];
+		}
+		return new ShortestPathTree(graph, metric, source, cost, parent, Arrays.copyOf(order, settled));
+	}
+}
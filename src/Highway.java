@@ -8,6 +8,8 @@
 
 public class Highway {
 	private double distance, travelHours, travelMinutes;
+	private boolean closed = false;		//true while the Highway cannot be driven
+	private TravelTimeProfile profile;	//travel time by time of day, null if it is always the same
 	
 	/**
 	 * Constructor for Highway (Edge) class 
@@ -48,6 +50,62 @@ public class Highway {
 		return travelHours + (travelMinutes / 60.0);
 	}
 
+	/**
+	 * @param departure is the time the Highway is entered, in hours after midnight
+	 * @return travel time in hours when entering at departure, the fixed travel time if there is no profile
+	 */
+	public double getTravelTime(double departure) {
+		return (profile == null) ? getTravelTime() : profile.travelTime(departure);
+	}
+
+	/**
+	 * @return travel time profile of this Highway, or null if its travel time does not depend on the time of day
+	 */
+	public TravelTimeProfile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * @return true if this Highway is closed to traffic
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Sets the distance between two cities, use RoadMap.setDistance on a Highway in a RoadMap
+	 * @param d is the new distance
+	 */
+	void setDistance(double d) {
+		distance = d;
+	}
+
+	/**
+	 * Sets the travel time between two cities, use RoadMap.setTravelTime on a Highway in a RoadMap
+	 * @param h is the new number of hours
+	 * @param m is the new number of minutes
+	 */
+	void setTravelTime(double h, double m) {
+		travelHours = h;
+		travelMinutes = m;
+	}
+
+	/**
+	 * Opens or closes this Highway, use RoadMap.close and RoadMap.reopen on a Highway in a RoadMap
+	 * @param c is true to close the Highway
+	 */
+	void setClosed(boolean c) {
+		closed = c;
+	}
+
+	/**
+	 * Sets the travel time profile, use RoadMap.setProfile on a Highway in a RoadMap
+	 * @param p is the new profile, null for a fixed travel time
+	 */
+	void setProfile(TravelTimeProfile p) {
+		profile = p;
+	}
+
 	/**
 	 * @return this Highway element
 	 */
@@ -0,0 +1,18 @@
+import net.datastructures.Edge;
+
+/**
+ * HighwayListener interface is notified by a RoadMap when a Highway's distance or travel time
+ * changes or it is closed or reopened, so routing data built on the old snapshot can be
+ * repaired instead of rebuilt.
+ */
+
+public interface HighwayListener {
+	/**
+	 * Called after a Highway changed
+	 * @param highway is the Highway edge that changed
+	 * @param before is the snapshot from before the change
+	 * @param after is the reweighted snapshot the RoadMap now returns, with the same arc indices as before
+	 * @param arcs are the outgoing arcs the Highway is stored as in both snapshots
+	 */
+	void highwayChanged(Edge<Highway> highway, RoadGraph before, RoadGraph after, int[] arcs);
+}
@@ -30,10 +30,14 @@ public class Interstate extends JPanel {
     destButton.setEnabled(false);     // disabled until there is a source vertex
     JButton distButton = new JButton("Use distance");
     JButton timeButton = new JButton("Use time");
+    JButton reachButton = new JButton("Reachable within");
+    JToggleButton alternativesButton = new JToggleButton("Alternatives");
     selectionPanel.add(sourceButton);
     selectionPanel.add(destButton);
     selectionPanel.add(distButton);
     selectionPanel.add(timeButton);
+    selectionPanel.add(reachButton);
+    selectionPanel.add(alternativesButton);
     selectionPanel.add(infoLabel);
     JPanel quitPanel = new JPanel();
     JButton quitButton = new JButton("Quit");
@@ -48,6 +52,8 @@ public class Interstate extends JPanel {
     destButton.addActionListener(new DestButtonListener());
     distButton.addActionListener(new DistButtonListener());
     timeButton.addActionListener(new TimeButtonListener());
+    reachButton.addActionListener(new ReachButtonListener());
+    alternativesButton.addActionListener(new AlternativesButtonListener());
     quitButton.addActionListener(new QuitButtonListener());
  
     // Get the image to use.
@@ -137,6 +143,35 @@ public class Interstate extends JPanel {
     }
   }
   
+  // Listener for the reachable button.  Asks for a budget in the current metric's units
+  // and shows only the cities within it; an empty answer shows every city again.
+  private class ReachButtonListener implements ActionListener {
+    public void actionPerformed(ActionEvent e) {
+      String budget = JOptionPane.showInputDialog(Interstate.this,
+          "Show cities within how many miles (distance) or hours (time)? Leave empty to show all.");
+      if (budget == null)
+        return;         // cancelled
+      if (budget.trim().isEmpty()) {
+        graphicalMap.showReachable(Double.POSITIVE_INFINITY);
+        return;
+      }
+      try {
+        graphicalMap.showReachable(Double.parseDouble(budget.trim()));
+      }
+      catch (NumberFormatException ex) {
+        infoLabel.setText("Not a number: " + budget);
+      }
+    }
+  }
+  
+  // Listener for the alternatives button.  While it is pressed, routes are shown
+  // together with up to two alternatives.
+  private class AlternativesButtonListener implements ActionListener {
+    public void actionPerformed(ActionEvent e) {
+      graphicalMap.showAlternatives(((JToggleButton) e.getSource()).isSelected());
+    }
+  }
+  
   // Listener for the quit button.
   private class QuitButtonListener implements ActionListener {
     public void actionPerformed(ActionEvent e) {
@@ -0,0 +1,343 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import net.datastructures.ArrayStack;
+import net.datastructures.IndexedDaryHeap;
+import net.datastructures.Vertex;
+
+/**
+ * KShortestPaths Class ranks the k shortest loopless routes between two cities (Yen's algorithm):
+ * Each new route is found among deviations of the previous one. For every city of the previous
+ * route from its own deviation point on (Lawler's refinement), a spur search looks for the best
+ * way on to the destination that leaves the shared root path through an arc no earlier route took.
+ *
+ * The graph is never copied: root cities and used arcs are banned with marks that are set before
+ * and cleared after each spur search. One backward search from the destination, done once per
+ * query, gives every spur search its exact remaining cost: a spur search first tries the tree path,
+ * which is optimal whenever it avoids the bans, and otherwise runs A* with that cost as heuristic.
+ * The spur searches of one round are independent and run in parallel on a fork-join pool, each
+ * leaf task checking out its own marks and queue and returning them after, so one instance can be
+ * shared between threads. Idle marks and queues are kept by the instance, at most one per worker,
+ * and go with it when it is dropped.
+ */
+
+public class KShortestPaths {
+	private static final int SPURS_PER_TASK = 4;	//spur searches each fork-join leaf task runs
+
+	private final RoadGraph graph;			//snapshot being searched
+	private final ForkJoinPool pool;		//runs the spur searches of a round in parallel
+	private final ArrayStack<SpurSearch> idle;		//spur searches not checked out
+	private final int maxIdle;						//most spur searches kept idle, one per worker and one for the caller
+
+	/**
+	 * Constructor for the KShortestPaths class, runs spur searches on the common fork-join pool
+	 * @param graph is the snapshot to search
+	 */
+	public KShortestPaths(RoadGraph graph) {
+		this(graph, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor for the KShortestPaths class
+	 * @param graph is the snapshot to search
+	 * @param pool is the fork-join pool the spur searches run on
+	 */
+	public KShortestPaths(RoadGraph graph, ForkJoinPool pool) {
+		this.graph = graph;
+		this.pool = pool;
+		maxIdle = pool.getParallelism() + 1;
+		idle = new ArrayStack<SpurSearch>(maxIdle);
+	}
+
+	/**
+	 * Finds the k shortest loopless routes between two City vertices
+	 * @param source is the City the routes start at
+	 * @param destination is the City the routes end at
+	 * @param metric is the weight to minimize
+	 * @param k is the largest number of routes to return
+	 * @return up to k routes in order of increasing cost, empty if destination is unreachable
+	 */
+	public List<RouteResult> routes(Vertex<City> source, Vertex<City> destination, Metric metric, int k) {
+		return routes(graph.id(source), graph.id(destination), metric, k);
+	}
+
+	/**
+	 * Finds the k shortest loopless routes between two city ids
+	 * @param source is the id of the City the routes start at
+	 * @param destination is the id of the City the routes end at
+	 * @param metric is the weight to minimize
+	 * @param k is the largest number of routes to return
+	 * @return up to k routes in order of increasing cost, empty if destination is unreachable
+	 */
+	public List<RouteResult> routes(int source, int destination, Metric metric, int k) {
+		List<RouteResult> routes = new ArrayList<RouteResult>();
+		double[] remaining = new double[graph.numVertices()];		//cost from each city to the destination
+		int[] next = new int[graph.numVertices()];					//next city on that cheapest way, -1 if none
+		backwardTree(destination, metric, remaining, next);
+		if (k <= 0 || remaining[source] == Double.POSITIVE_INFINITY)
+			return routes;
+
+		// the shortest route is read straight off the backward tree
+		int[] first = treePath(source, destination, next, new int[0], 0);
+		List<Candidate> found = new ArrayList<Candidate>();
+		found.add(new Candidate(first, remaining[source], 0, 0));
+		PriorityQueue<Candidate> candidates = new PriorityQueue<Candidate>();
+		Set<Candidate> seen = new HashSet<Candidate>(found);		//routes found or queued, to skip duplicates
+
+		while (found.size() < k) {
+			Candidate last = found.get(found.size() - 1);
+			int spurs = last.path.length - 1 - last.deviation;
+			Candidate[] spurRoutes = new Candidate[Math.max(spurs, 0)];
+			if (spurs > 0)
+				pool.invoke(new Spurs(last, found, metric, remaining, next, spurRoutes, 0, spurs));
+			for (Candidate candidate : spurRoutes)
+				if (candidate != null && seen.add(candidate))
+					candidates.add(candidate);
+			if (candidates.isEmpty())		//every loopless route has been found
+				break;
+			found.add(candidates.poll());
+		}
+
+		for (Candidate route : found)
+			routes.add(new RouteResult(graph, metric, route.cost, route.path, route.settled));
+		return routes;
+	}
+
+	/**
+	 * A route found or queued by the search
+	 */
+	private static class Candidate implements Comparable<Candidate> {
+		final int[] path;			//city ids from source to destination
+		final double cost;			//total weight of the route
+		final int deviation;		//position of the city where it left the route it was derived from
+		final int settled;			//cities the spur search that found it settled
+
+		Candidate(int[] path, double cost, int deviation, int settled) {
+			this.path = path;
+			this.cost = cost;
+			this.deviation = deviation;
+			this.settled = settled;
+		}
+
+		public int compareTo(Candidate other) {
+			if (cost != other.cost)
+				return (cost < other.cost) ? -1 : 1;
+			return Integer.compare(path.length, other.path.length);		//fewer highways first on ties
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Candidate && Arrays.equals(path, ((Candidate) other).path);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(path);
+		}
+	}
+
+	/**
+	 * Fork-join task running the spur searches at positions from (inclusive) to (exclusive),
+	 * counted from the deviation point of the last route found
+	 */
+	private class Spurs extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final Candidate last;			//route whose deviations are searched
+		private final List<Candidate> found;	//routes found so far, not modified while the task runs
+		private final Metric metric;
+		private final double[] remaining;
+		private final int[] next;
+		private final Candidate[] results;		//spur route found at each position, or null
+		private final int from, to;
+
+		Spurs(Candidate last, List<Candidate> found, Metric metric, double[] remaining, int[] next,
+				Candidate[] results, int from, int to) {
+			this.last = last;
+			this.found = found;
+			this.metric = metric;
+			this.remaining = remaining;
+			this.next = next;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > SPURS_PER_TASK) {		//split the range in half
+				int mid = (from + to) >>> 1;
+				invokeAll(new Spurs(last, found, metric, remaining, next, results, from, mid),
+						new Spurs(last, found, metric, remaining, next, results, mid, to));
+				return;
+			}
+			SpurSearch search = null;
+			synchronized (idle) {
+				if (!idle.isEmpty())
+					search = idle.pop();
+			}
+			if (search == null)
+				search = new SpurSearch();
+			for (int i = from; i < to; i++)
+				results[i] = search.spur(last, last.deviation + i, found, metric, remaining, next);
+			synchronized (idle) {
+				if (idle.size() < maxIdle)
+					idle.push(search);
+			}
+		}
+	}
+
+	/**
+	 * The marks and queue of one leaf task's spur searches at a time
+	 */
+	private class SpurSearch {
+		private final IndexedDaryHeap queue = new IndexedDaryHeap(graph.numVertices());
+		private final SearchWorkspace work = new SearchWorkspace(graph.numVertices());
+		private final boolean[] bannedCity = new boolean[graph.numVertices()];
+		private final boolean[] bannedArc = new boolean[graph.numArcs()];
+		private final int[] bannedArcs = new int[graph.numArcs()];		//arcs marked by this spur, to clear after
+		private int numBanned;
+
+		/**
+		 * Finds the shortest route that follows the last route to its city at position @param i and
+		 * then leaves it through an arc that no found route with the same root took there
+		 * @return the route, or null if there is none
+		 */
+		Candidate spur(Candidate last, int i, List<Candidate> found, Metric metric, double[] remaining, int[] next) {
+			int[] root = last.path;
+			int spur = root[i];
+			// ban the root's cities before the spur city, and the arcs that found routes sharing the root take next
+			for (int j = 0; j < i; j++)
+				bannedCity[root[j]] = true;
+			numBanned = 0;
+			for (Candidate route : found)
+				if (route.path.length > i + 1 && sharesRoot(route.path, root, i)) {
+					int arc = graph.findArc(spur, route.path[i + 1]);
+					if (!bannedArc[arc]) {
+						bannedArc[arc] = true;
+						bannedArcs[numBanned++] = arc;
+					}
+				}
+
+			double rootCost = 0.0;
+			for (int j = 1; j <= i; j++)
+				rootCost += graph.weight(graph.findArc(root[j - 1], root[j]), metric);
+			Candidate answer;
+			if (treePathClear(spur, next))		//the cheapest way on avoids every ban, so it is the spur route
+				answer = new Candidate(treePath(spur, root[root.length - 1], next, root, i),
+						rootCost + remaining[spur], i, 0);
+			else
+				answer = aStar(root, i, rootCost, metric, remaining);
+
+			for (int j = 0; j < i; j++)
+				bannedCity[root[j]] = false;
+			for (int b = 0; b < numBanned; b++)
+				bannedArc[bannedArcs[b]] = false;
+			return answer;
+		}
+
+		/**
+		 * @return true if the backward tree path from city @param v uses no banned city or arc
+		 */
+		private boolean treePathClear(int v, int[] next) {
+			if (next[v] < 0)
+				return false;		//v cannot reach the destination at all
+			for (; next[v] >= 0; v = next[v])
+				if (bannedCity[next[v]] || bannedArc[graph.findArc(v, next[v])])
+					return false;
+			return true;
+		}
+
+		/**
+		 * A* search from the spur city to the destination around the banned cities and arcs,
+		 * guided by the exact unbanned remaining cost
+		 */
+		private Candidate aStar(int[] root, int i, double rootCost, Metric metric, double[] remaining) {
+			int spur = root[i], destination = root[root.length - 1];
+			double[] weights = graph.weights(metric);
+			work.reset();		//a spur search usually reaches few cities, do not reset all of them
+			queue.clear();
+			work.set(spur, 0.0, -1);
+			queue.insert(spur, remaining[spur]);
+			int settled = 0;
+			while (!queue.isEmpty()) {
+				int u = queue.removeMin();
+				settled++;
+				if (u == destination) {
+					int length = 0;
+					for (int v = u; v != spur; v = work.prev(v))
+						length++;
+					int[] path = Arrays.copyOf(root, i + 1 + length);
+					for (int v = u; v != spur; v = work.prev(v))
+						path[i + length--] = v;
+					return new Candidate(path, rootCost + work.cost(destination), i, settled);
+				}
+				double pathWeight = work.cost(u);
+				for (int arc = graph.firstArc(u); arc < graph.endArc(u); arc++) {
+					int v = graph.head(arc);
+					if (bannedCity[v] || bannedArc[arc] || remaining[v] == Double.POSITIVE_INFINITY)
+						continue;
+					double weight = pathWeight + weights[arc];
+					if (weight < work.cost(v)) {
+						work.set(v, weight, u);
+						queue.insertOrDecrease(v, weight + remaining[v]);
+					}
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * @return true if @param path starts with the first @param i + 1 cities of @param root
+	 */
+	private static boolean sharesRoot(int[] path, int[] root, int i) {
+		for (int j = 0; j <= i; j++)
+			if (path[j] != root[j])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Joins the first @param i cities of @param root with the backward tree path from city @param v
+	 * @return city ids from the root's start through v to @param destination
+	 */
+	private static int[] treePath(int v, int destination, int[] next, int[] root, int i) {
+		int length = 1;
+		for (int u = v; u != destination; u = next[u])
+			length++;
+		int[] path = Arrays.copyOf(root, i + length);
+		for (int u = v, j = i; j < path.length; u = next[u], j++)
+			path[j] = u;
+		return path;
+	}
+
+	/**
+	 * Runs Dijkstra backward from the destination over incoming arcs
+	 * @param remaining receives the cost from each city to the destination, infinity if it cannot reach it
+	 * @param next receives the next city on that cheapest way, -1 for the destination and unreached cities
+	 */
+	private void backwardTree(int destination, Metric metric, double[] remaining, int[] next) {
+		double[] inWeights = graph.inWeights(metric);
+		IndexedDaryHeap queue = new IndexedDaryHeap(graph.numVertices());
+		Arrays.fill(remaining, Double.POSITIVE_INFINITY);
+		Arrays.fill(next, -1);
+		remaining[destination] = 0.0;
+		queue.insert(destination, 0.0);
+		while (!queue.isEmpty()) {
+			int v = queue.removeMin();
+			for (int arc = graph.firstInArc(v); arc < graph.endInArc(v); arc++) {
+				int u = graph.tail(arc);
+				if (remaining[v] + inWeights[arc] < remaining[u]) {
+					remaining[u] = remaining[v] + inWeights[arc];
+					next[u] = v;
+					queue.insertOrDecrease(u, remaining[u]);
+				}
+			}
+		}
+	}
+}
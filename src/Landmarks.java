@@ -0,0 +1,231 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import net.datastructures.IndexedDaryHeap;
+
+/**
+ * Landmarks Class is the ALT (A*, landmarks, triangle inequality) heuristic for one metric:
+ * A few landmark cities are chosen and the shortest path cost from each landmark to every city
+ * is precomputed. For any landmark L the triangle inequality gives
+ *   cost(v, t) >= cost(L, t) - cost(L, v)
+ * (and, on an undirected graph, cost(L, v) - cost(L, t)), so the largest such difference is an
+ * admissible and consistent lower bound that works for any Highway weight, not just distance.
+ *
+ * Landmarks are chosen farthest-point style: each new landmark is the city farthest from the
+ * landmarks already chosen. The tables can be saved to a file and loaded again at startup.
+ * Use with AStar, for example new AStar(graph, distanceLandmarks, timeLandmarks).
+ */
+
+public class Landmarks implements LowerBound {
+	private static final int FILE_MAGIC = 0x414c5431;	//"ALT1", identifies a landmark file
+
+	private final RoadGraph graph;			//snapshot the tables were computed on
+	private final Metric metric;			//weight the tables measure
+	private final int[] landmarks;			//city ids of the landmarks
+	private final double[][] fromLandmark;	//fromLandmark[i][v] is the cost from landmark i to city v
+	private final double[][] toLandmark;	//toLandmark[i][v] is the cost from city v to landmark i
+
+	/**
+	 * Constructor for the Landmarks class, chooses the landmarks and computes their tables
+	 * @param graph is the snapshot to estimate costs on
+	 * @param metric is the weight to estimate
+	 * @param count is the number of landmarks to choose (at most the number of cities)
+	 */
+	public Landmarks(RoadGraph graph, Metric metric, int count) {
+		this.graph = graph;
+		this.metric = metric;
+		int n = graph.numVertices();
+		count = Math.max(0, Math.min(count, n));
+		landmarks = new int[count];
+		fromLandmark = new double[count][];
+		toLandmark = graph.isDirected() ? new double[count][] : fromLandmark;
+		if (count == 0)			//also covers an empty graph, which has no city 0 to start from
+			return;
+
+		IndexedDaryHeap queue = new IndexedDaryHeap(n);
+		double[] nearest = new double[n];		//cost from the closest chosen landmark to each city
+		Arrays.fill(nearest, Double.POSITIVE_INFINITY);
+		boolean[] chosen = new boolean[n];
+		// start from the city farthest from city 0, which lies on the edge of the map
+		double[] start = costs(0, false, queue);
+		int next = farthest(start, chosen);
+		for (int i = 0; i < count; i++) {
+			landmarks[i] = next;
+			chosen[next] = true;
+			fromLandmark[i] = costs(next, false, queue);
+			if (graph.isDirected())
+				toLandmark[i] = costs(next, true, queue);
+			for (int v = 0; v < n; v++)
+				nearest[v] = Math.min(nearest[v], fromLandmark[i][v]);
+			next = farthest(nearest, chosen);
+		}
+	}
+
+	/**
+	 * Constructor used when loading saved tables
+	 */
+	private Landmarks(RoadGraph graph, Metric metric, int[] landmarks, double[][] fromLandmark, double[][] toLandmark) {
+		this.graph = graph;
+		this.metric = metric;
+		this.landmarks = landmarks;
+		this.fromLandmark = fromLandmark;
+		this.toLandmark = toLandmark;
+	}
+
+	/**
+	 * @return metric the tables measure
+	 */
+	public Metric metric() {
+		return metric;
+	}
+
+	/**
+	 * @return number of landmarks
+	 */
+	public int size() {
+		return landmarks.length;
+	}
+
+	/**
+	 * @return city id of landmark @param i
+	 */
+	public int landmark(int i) {
+		return landmarks[i];
+	}
+
+	/**
+	 * @param v is the id of the city the search has reached
+	 * @param destination is the id of the City the search is heading to
+	 * @return largest triangle inequality bound on the cost from v to destination over all landmarks
+	 */
+	public double estimate(int v, int destination) {
+		double bound = 0.0;
+		for (int i = 0; i < landmarks.length; i++) {
+			double[] from = fromLandmark[i], to = toLandmark[i];
+			// cities a landmark cannot reach (or be reached from) give no information
+			if (from[v] != Double.POSITIVE_INFINITY && from[destination] != Double.POSITIVE_INFINITY)
+				bound = Math.max(bound, from[destination] - from[v]);
+			if (to[v] != Double.POSITIVE_INFINITY && to[destination] != Double.POSITIVE_INFINITY)
+				bound = Math.max(bound, to[v] - to[destination]);
+		}
+		return bound;
+	}
+
+	/**
+	 * Saves the landmark tables so they can be loaded instead of recomputed
+	 * @param fileName is the file to write
+	 * @throws IOException if the file cannot be written
+	 */
+	public void save(String fileName) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName)));
+		try {
+			out.writeInt(FILE_MAGIC);
+			out.writeInt(metric.ordinal());
+			out.writeInt(graph.numVertices());
+			out.writeInt(graph.numArcs());
+			out.writeLong(graph.fingerprint());
+			out.writeBoolean(graph.isDirected());
+			out.writeInt(landmarks.length);
+			for (int i = 0; i < landmarks.length; i++) {
+				out.writeInt(landmarks[i]);
+				for (double cost : fromLandmark[i])
+					out.writeDouble(cost);
+				if (graph.isDirected())
+					for (double cost : toLandmark[i])
+						out.writeDouble(cost);
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Loads landmark tables saved by @method save
+	 * @param graph is the snapshot the tables will be used on, must match the one they were computed on
+	 * @param fileName is the file to read
+	 * @return the loaded landmarks
+	 * @throws IOException if the file cannot be read, is corrupt or truncated, or was computed on a different graph
+	 */
+	public static Landmarks load(RoadGraph graph, String fileName) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)));
+		try {
+			if (in.readInt() != FILE_MAGIC)
+				throw new IOException("Not a landmark file: " + fileName);
+			int ordinal = in.readInt();
+			if (ordinal < 0 || ordinal >= Metric.values().length)
+				throw new IOException("Unknown metric in landmark file: " + fileName);
+			Metric metric = Metric.values()[ordinal];
+			if (in.readInt() != graph.numVertices() || in.readInt() != graph.numArcs()
+					|| in.readLong() != graph.fingerprint() || in.readBoolean() != graph.isDirected())
+				throw new IOException("Landmark file does not match the graph: " + fileName);
+
+			int n = graph.numVertices();
+			int count = in.readInt();
+			if (count < 0 || count > n)
+				throw new IOException("Bad landmark count " + count + " in landmark file: " + fileName);
+			int[] landmarks = new int[count];
+			double[][] fromLandmark = new double[count][n];
+			double[][] toLandmark = graph.isDirected() ? new double[count][n] : fromLandmark;
+			for (int i = 0; i < count; i++) {
+				landmarks[i] = in.readInt();
+				if (landmarks[i] < 0 || landmarks[i] >= n)
+					throw new IOException("Bad landmark city id " + landmarks[i] + " in landmark file: " + fileName);
+				for (int v = 0; v < n; v++)
+					fromLandmark[i][v] = in.readDouble();
+				if (graph.isDirected())
+					for (int v = 0; v < n; v++)
+						toLandmark[i][v] = in.readDouble();
+			}
+			return new Landmarks(graph, metric, landmarks, fromLandmark, toLandmark);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @return id of the city not yet @param chosen with the largest finite value in @param costs, or
+	 * of an unreached city if any (on a disconnected graph every unreached city is infinitely far,
+	 * so chosen landmarks must be skipped explicitly)
+	 */
+	private static int farthest(double[] costs, boolean[] chosen) {
+		int best = -1;
+		for (int v = 0; v < costs.length; v++)
+			if (!chosen[v] && (best < 0 || costs[v] > costs[best]))
+				best = v;
+		return best;
+	}
+
+	/**
+	 * Runs a one-to-all Dijkstra search from a city
+	 * @param source is the id of the city to search from
+	 * @param reverse is true to follow incoming arcs (costs to the source instead of from it)
+	 * @param queue is an empty heap sized to the graph
+	 * @return cost between source and every city, infinity if unreachable
+	 */
+	private double[] costs(int source, boolean reverse, IndexedDaryHeap queue) {
+		double[] cost = new double[graph.numVertices()];
+		Arrays.fill(cost, Double.POSITIVE_INFINITY);
+		double[] weights = reverse ? graph.inWeights(metric) : graph.weights(metric);
+		cost[source] = 0.0;
+		queue.insert(source, 0.0);
+		while (!queue.isEmpty()) {
+			int u = queue.removeMin();
+			int end = reverse ? graph.endInArc(u) : graph.endArc(u);
+			for (int arc = reverse ? graph.firstInArc(u) : graph.firstArc(u); arc < end; arc++) {
+				int v = reverse ? graph.tail(arc) : graph.head(arc);
+				if (cost[u] + weights[arc] < cost[v]) {
+					cost[v] = cost[u] + weights[arc];
+					queue.insertOrDecrease(v, cost[v]);
+				}
+			}
+		}
+		return cost;
+	}
+}
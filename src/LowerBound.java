@@ -0,0 +1,19 @@
+/**
+ * LowerBound interface is a goal-directed search heuristic on a RoadGraph:
+ * An estimate of the remaining cost from a city to the destination that never
+ * overestimates the true shortest path cost under its metric (it is admissible)
+ */
+
+public interface LowerBound {
+	/**
+	 * @return metric the bound applies to
+	 */
+	Metric metric();
+
+	/**
+	 * @param v is the id of the city the search has reached
+	 * @param destination is the id of the City the search is heading to
+	 * @return lower bound on the cost of any path from v to destination
+	 */
+	double estimate(int v, int destination);
+}
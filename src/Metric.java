@@ -0,0 +1,44 @@
+/**
+ * Metric enum identifies which Highway weight a shortest path search minimizes:
+ * driving distance in miles or total travel time in hours
+ */
+
+public enum Metric {
+	DISTANCE,	// minimize Highway.getDistance()
+	TIME;		// minimize Highway.getTravelTime()
+
+	public static final int CLOSED = Integer.MAX_VALUE;		// fixed-point weight of a closed Highway
+
+	/**
+	 * @param highway is the Highway edge element being weighed
+	 * @return weight of the Highway under this metric, infinity if the Highway is closed
+	 */
+	public double weight(Highway highway) {
+		if (highway.isClosed())
+			return Double.POSITIVE_INFINITY;
+		if (this == DISTANCE)
+			return highway.getDistance();
+		return highway.getTravelTime();
+	}
+
+	/**
+	 * @return size of one fixed-point weight unit in this metric's units: a tenth of a mile or a minute (in hours)
+	 */
+	public double unit() {
+		return (this == DISTANCE) ? 0.1 : 1.0 / 60.0;
+	}
+
+	/**
+	 * Weighs a Highway in whole units for integer searches: tenths of a mile, or minutes from the
+	 * Highway's hours and minutes, rounded to the nearest unit
+	 * @param highway is the Highway edge element being weighed
+	 * @return weight of the Highway in units of @method unit, CLOSED if the Highway is closed
+	 */
+	public int fixedWeight(Highway highway) {
+		if (highway.isClosed())
+			return CLOSED;
+		if (this == DISTANCE)
+			return (int) Math.round(highway.getDistance() * 10);
+		return (int) Math.round(highway.getTravelHours() * 60 + highway.getTravelMinutes());
+	}
+}
@@ -0,0 +1,190 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import net.datastructures.Vertex;
+
+/**
+ * ParetoSearch Class finds every trade-off route between two cities over distance and travel time:
+ * The Pareto front of routes where no other route is both shorter and faster.
+ *
+ * It is a bi-criteria label-setting search. A label is a partial route (city, distance, time,
+ * parent label) stored in parallel primitive arrays. Labels leave the queue in lexicographic
+ * order of distance then time, so a label is dominated exactly when an earlier label at the same
+ * city was at least as fast; one "fastest settled time" per city is all the dominance state needed.
+ * Labels are also pruned when even the fastest possible completion (from a backward search from
+ * the destination) cannot beat the routes already found, and the queue is ordered by distance plus
+ * the remaining distance lower bound so the search heads for the destination.
+ *
+ * The search arrays are reused between queries, so an instance must not be shared between threads.
+ */
+
+public class ParetoSearch {
+	private final RoadGraph graph;			//snapshot being searched
+	private final Dijkstra bounds;			//computes the remaining cost lower bounds
+	private final double[] settledTime;		//fastest time of a settled label at each city id
+
+	//labels, stored in parallel arrays grown as needed
+	private int numLabels = 0;
+	private int[] labelCity = new int[64], labelParent = new int[64];
+	private double[] labelDistance = new double[64], labelTime = new double[64], labelKey = new double[64];
+
+	//binary heap of label ids ordered by key, then time
+	private int[] heap = new int[64];
+	private int heapSize = 0;
+
+	/**
+	 * Constructor for the ParetoSearch class
+	 * @param graph is the snapshot to search
+	 */
+	public ParetoSearch(RoadGraph graph) {
+		this.graph = graph;
+		bounds = new Dijkstra(graph);
+		settledTime = new double[graph.numVertices()];
+	}
+
+	/**
+	 * Finds the Pareto front of routes between two City vertices
+	 * @param source is the City the routes start at
+	 * @param destination is the City the routes end at
+	 * @return non-dominated routes in order of increasing distance (and decreasing travel time)
+	 */
+	public List<RouteResult> routes(Vertex<City> source, Vertex<City> destination) {
+		return routes(graph.id(source), graph.id(destination));
+	}
+
+	/**
+	 * Finds the Pareto front of routes between two city ids
+	 * @param source is the id of the City the routes start at
+	 * @param destination is the id of the City the routes end at
+	 * @return non-dominated routes in order of increasing distance (and decreasing travel time),
+	 * 		each with metric DISTANCE; empty if destination is unreachable
+	 */
+	public List<RouteResult> routes(int source, int destination) {
+		// lower bounds on the remaining distance and time to the destination (undirected graphs only)
+		ShortestPathTree toDistance = null, toTime = null;
+		if (!graph.isDirected()) {
+			toDistance = bounds.tree(destination, Metric.DISTANCE);
+			toTime = bounds.tree(destination, Metric.TIME);
+			if (!toDistance.isReached(source))
+				return Collections.emptyList();
+		}
+		double[] distances = graph.weights(Metric.DISTANCE);
+		double[] times = graph.weights(Metric.TIME);
+		Arrays.fill(settledTime, Double.POSITIVE_INFINITY);
+		numLabels = 0;
+		heapSize = 0;
+
+		List<Integer> front = new ArrayList<Integer>();		//labels settled at the destination
+		push(newLabel(source, -1, 0.0, 0.0, (toDistance == null) ? 0.0 : toDistance.cost(source)));
+		int settled = 0;
+
+		while (heapSize > 0) {
+			int label = pop();
+			int u = labelCity[label];
+			if (labelTime[label] >= settledTime[u] || labelTime[label] >= settledTime[destination])
+				continue;		//dominated since it was queued
+			settledTime[u] = labelTime[label];
+			settled++;
+			if (u == destination) {
+				front.add(label);
+				continue;
+			}
+
+			for (int arc = graph.firstArc(u); arc < graph.endArc(u); arc++) {
+				int v = graph.head(arc);
+				double distance = labelDistance[label] + distances[arc];
+				double time = labelTime[label] + times[arc];
+				double remaining = (toTime == null) ? 0.0 : toTime.cost(v);
+				// dominated by a label settled at v, or no completion can beat the fastest route found
+				if (time >= settledTime[v] || time + remaining >= settledTime[destination])
+					continue;
+				push(newLabel(v, label, distance, time, distance + ((toDistance == null) ? 0.0 : toDistance.cost(v))));
+			}
+		}
+
+		List<RouteResult> routes = new ArrayList<RouteResult>(front.size());
+		for (int label : front)
+			routes.add(new RouteResult(graph, Metric.DISTANCE, labelDistance[label], path(label), settled));
+		return routes;
+	}
+
+	/**
+	 * Follows parent labels back to the source
+	 * @return city ids from source to the city of @param label
+	 */
+	private int[] path(int label) {
+		int length = 0;
+		for (int l = label; l >= 0; l = labelParent[l])
+			length++;
+		int[] path = new int[length];
+		for (int l = label; l >= 0; l = labelParent[l])
+			path[--length] = labelCity[l];
+		return path;
+	}
+
+	/**
+	 * Stores a new label, growing the label arrays if needed
+	 * @return id of the new label
+	 */
+	private int newLabel(int city, int parent, double distance, double time, double key) {
+		if (numLabels == labelCity.length) {
+			int capacity = 2 * numLabels;
+			labelCity = Arrays.copyOf(labelCity, capacity);
+			labelParent = Arrays.copyOf(labelParent, capacity);
+			labelDistance = Arrays.copyOf(labelDistance, capacity);
+			labelTime = Arrays.copyOf(labelTime, capacity);
+			labelKey = Arrays.copyOf(labelKey, capacity);
+		}
+		labelCity[numLabels] = city;
+		labelParent[numLabels] = parent;
+		labelDistance[numLabels] = distance;
+		labelTime[numLabels] = time;
+		labelKey[numLabels] = key;
+		return numLabels++;
+	}
+
+	/**
+	 * @return true if label @param a leaves the queue before label @param b
+	 */
+	private boolean before(int a, int b) {
+		if (labelKey[a] != labelKey[b])
+			return labelKey[a] < labelKey[b];
+		return labelTime[a] < labelTime[b];
+	}
+
+	/**
+	 * Adds a label to the heap
+	 */
+	private void push(int label) {
+		if (heapSize == heap.length)
+			heap = Arrays.copyOf(heap, 2 * heapSize);
+		int j = heapSize++;
+		while (j > 0 && before(label, heap[(j - 1) / 2])) {		//move parents down until label fits
+			heap[j] = heap[(j - 1) / 2];
+			j = (j - 1) / 2;
+		}
+		heap[j] = label;
+	}
+
+	/**
+	 * Removes the first label from the heap
+	 * @return id of the removed label
+	 */
+	private int pop() {
+		int answer = heap[0];
+		int last = heap[--heapSize];
+		int j = 0;
+		while (2 * j + 1 < heapSize) {		//move smaller children up until last fits
+			int child = 2 * j + 1;
+			if (child + 1 < heapSize && before(heap[child + 1], heap[child]))
+				child++;
+			if (!before(heap[child], last))
+				break;
+			heap[j] = heap[child];
+			j = child;
+		}
+		heap[j] = last;
+		return answer;
+	}
+}
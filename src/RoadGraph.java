@@ -0,0 +1,466 @@
+import java.util.HashMap;
+import net.datastructures.AdjacencyMapGraph;
+import net.datastructures.Edge;
+import net.datastructures.Vertex;
+
+/**
+ * RoadGraph Class is an immutable compressed-sparse-row (CSR) snapshot of a graph of
+ * City vertices and Highway edges, built for routing engines to read from.
+ *
+ * Each City vertex is given a dense int id (0 to numVertices - 1, in the graph's vertex order).
+ * The outgoing arcs of vertex v are the arc indices firstArc(v) to endArc(v) - 1, and every arc
+ * keeps its head vertex id, distance and travel time in primitive arrays, so a search can
+ * relax edges without hash lookups, Vertex/Edge objects or boxed Doubles.
+ * An undirected Highway is stored as two arcs, one in each direction.
+ *
+ * Travel time profiles of Highways are packed into shared breakpoint arrays as well, for
+ * time-dependent searches (@method travelTime).
+ *
+ * The snapshot does not follow later changes to the graph it was built from, but a copy with
+ * re-read Highway weights can be made cheaply with @method reweighted (a closed Highway
+ * weighs infinity under both metrics).
+ */
+
+public class RoadGraph {
+	private final int numVertices, numArcs;		//number of City vertices and directed arcs
+	private final boolean directed;				//true if the source graph was directed
+
+	private final Vertex<City>[] vertices;						//vertex for each dense id
+	private final HashMap<Vertex<City>, Integer> ids;			//dense id for each vertex
+	private final int[] x, y;									//City location for each dense id
+
+	//outgoing arcs: arcs of vertex v are stored at indices offsets[v] to offsets[v+1] - 1
+	private final int[] offsets, heads;
+	private final double[] distances, times;
+	private final int[] fixedDistances, fixedTimes;		//weights in whole units, see Metric.fixedWeight
+	private final Edge<Highway>[] highways;
+
+	//travel time profiles: arc a uses breakpoints profileOffsets[p] to profileOffsets[p+1] - 1 of profile
+	//p = arcProfile[a], or its fixed travel time if p is -1; both arcs of an undirected Highway share p
+	private final int[] arcProfile, profileOffsets;
+	private final double[] profileDepartures, profileHours, profileSlopes;
+
+	//incoming arcs: same layout, aliased to the outgoing arrays if the graph is undirected
+	private final int[] inOffsets, tails;
+	private final double[] inDistances, inTimes;
+	private final Edge<Highway>[] inHighways;
+
+	/**
+	 * Constructor for the RoadGraph class, takes a snapshot of the current state of the graph
+	 * @param graph is the graph of City vertices and Highway edges, such as a RoadMap
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public RoadGraph(AdjacencyMapGraph<City, Highway> graph) {
+		directed = graph.isDirected;
+		numVertices = graph.numVertices();
+
+		//assign dense ids in the graph's vertex order
+		vertices = (Vertex<City>[]) new Vertex[numVertices];
+		ids = new HashMap<Vertex<City>, Integer>(2 * numVertices);
+		x = new int[numVertices];
+		y = new int[numVertices];
+		int id = 0;
+		for (Vertex<City> v : graph.vertices()) {
+			vertices[id] = v;
+			ids.put(v, id);
+			x[id] = v.getElement().getLocation().x;
+			y[id] = v.getElement().getLocation().y;
+			id++;
+		}
+
+		//lay out the outgoing arcs of every vertex
+		offsets = new int[numVertices + 1];
+		for (int v = 0; v < numVertices; v++)
+			offsets[v + 1] = offsets[v] + graph.outDegree(vertices[v]);
+		numArcs = offsets[numVertices];
+		heads = new int[numArcs];
+		distances = new double[numArcs];
+		times = new double[numArcs];
+		fixedDistances = new int[numArcs];
+		fixedTimes = new int[numArcs];
+		highways = (Edge<Highway>[]) new Edge[numArcs];
+		for (int v = 0; v < numVertices; v++) {
+			int arc = offsets[v];
+			for (Edge<Highway> e : graph.outgoingEdges(vertices[v])) {
+				heads[arc] = ids.get(graph.opposite(vertices[v], e));
+				distances[arc] = Metric.DISTANCE.weight(e.getElement());
+				times[arc] = Metric.TIME.weight(e.getElement());
+				fixedDistances[arc] = Metric.DISTANCE.fixedWeight(e.getElement());
+				fixedTimes[arc] = Metric.TIME.fixedWeight(e.getElement());
+				highways[arc] = e;
+				arc++;
+			}
+		}
+
+		//pack the profiles of all Highways into shared breakpoint arrays, one copy per Highway
+		arcProfile = new int[numArcs];
+		HashMap<TravelTimeProfile, Integer> profileIds = new HashMap<TravelTimeProfile, Integer>();
+		int numBreakpoints = 0;
+		for (int arc = 0; arc < numArcs; arc++) {
+			TravelTimeProfile profile = highways[arc].getElement().getProfile();
+			arcProfile[arc] = -1;
+			if (profile == null)
+				continue;
+			Integer p = profileIds.get(profile);
+			if (p == null) {
+				p = profileIds.size();
+				profileIds.put(profile, p);
+				numBreakpoints += profile.size();
+			}
+			arcProfile[arc] = p;
+		}
+		profileOffsets = new int[profileIds.size() + 1];
+		profileDepartures = new double[numBreakpoints];
+		profileHours = new double[numBreakpoints];
+		profileSlopes = new double[numBreakpoints];
+		TravelTimeProfile[] profiles = new TravelTimeProfile[profileIds.size()];
+		for (TravelTimeProfile profile : profileIds.keySet())
+			profiles[profileIds.get(profile)] = profile;
+		for (int p = 0; p < profiles.length; p++) {
+			profileOffsets[p + 1] = profileOffsets[p] + profiles[p].size();
+			for (int i = 0; i < profiles[p].size(); i++) {
+				profileDepartures[profileOffsets[p] + i] = profiles[p].departure(i);
+				profileHours[profileOffsets[p] + i] = profiles[p].hours(i);
+				profileSlopes[profileOffsets[p] + i] = profiles[p].slope(i);
+			}
+		}
+
+		if (!directed) {		//every Highway can be driven both ways, incoming arcs are the outgoing arcs
+			inOffsets = offsets;
+			tails = heads;
+			inDistances = distances;
+			inTimes = times;
+			inHighways = highways;
+		}
+		else {					//lay out the incoming arcs of every vertex separately
+			inOffsets = new int[numVertices + 1];
+			for (int v = 0; v < numVertices; v++)
+				inOffsets[v + 1] = inOffsets[v] + graph.inDegree(vertices[v]);
+			tails = new int[numArcs];
+			inDistances = new double[numArcs];
+			inTimes = new double[numArcs];
+			inHighways = (Edge<Highway>[]) new Edge[numArcs];
+			for (int v = 0; v < numVertices; v++) {
+				int arc = inOffsets[v];
+				for (Edge<Highway> e : graph.incomingEdges(vertices[v])) {
+					tails[arc] = ids.get(graph.opposite(vertices[v], e));
+					inDistances[arc] = Metric.DISTANCE.weight(e.getElement());
+					inTimes[arc] = Metric.TIME.weight(e.getElement());
+					inHighways[arc] = e;
+					arc++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Constructor used by @method reweighted, shares everything but the weight arrays with @param base
+	 */
+	private RoadGraph(RoadGraph base) {
+		numVertices = base.numVertices;
+		numArcs = base.numArcs;
+		directed = base.directed;
+		vertices = base.vertices;
+		ids = base.ids;
+		x = base.x;
+		y = base.y;
+		offsets = base.offsets;
+		heads = base.heads;
+		highways = base.highways;
+		inOffsets = base.inOffsets;
+		tails = base.tails;
+		inHighways = base.inHighways;
+		arcProfile = base.arcProfile;
+		profileOffsets = base.profileOffsets;
+		profileDepartures = base.profileDepartures;
+		profileHours = base.profileHours;
+		profileSlopes = base.profileSlopes;
+		distances = base.distances.clone();
+		times = base.times.clone();
+		fixedDistances = base.fixedDistances.clone();
+		fixedTimes = base.fixedTimes.clone();
+		inDistances = directed ? base.inDistances.clone() : distances;
+		inTimes = directed ? base.inTimes.clone() : times;
+	}
+
+	/**
+	 * @return number of City vertices in the snapshot
+	 */
+	public int numVertices() {
+		return numVertices;
+	}
+
+	/**
+	 * @return number of directed arcs in the snapshot (twice the number of Highways if undirected)
+	 */
+	public int numArcs() {
+		return numArcs;
+	}
+
+	/**
+	 * @return true if the snapshot was taken of a directed graph
+	 */
+	public boolean isDirected() {
+		return directed;
+	}
+
+	/**
+	 * @param v is a vertex of the graph the snapshot was taken of
+	 * @return dense id of vertex v, or -1 if v is not in the snapshot
+	 */
+	public int id(Vertex<City> v) {
+		Integer id = ids.get(v);
+		return (id == null) ? -1 : id;
+	}
+
+	/**
+	 * @return the vertex with dense id @param v
+	 */
+	public Vertex<City> vertex(int v) {
+		return vertices[v];
+	}
+
+	/**
+	 * @return the City with dense id @param v
+	 */
+	public City city(int v) {
+		return vertices[v].getElement();
+	}
+
+	/**
+	 * @return x-coordinate of the City with dense id @param v
+	 */
+	public int x(int v) {
+		return x[v];
+	}
+
+	/**
+	 * @return y-coordinate of the City with dense id @param v
+	 */
+	public int y(int v) {
+		return y[v];
+	}
+
+	/**
+	 * @return index of the first outgoing arc of vertex @param v
+	 */
+	public int firstArc(int v) {
+		return offsets[v];
+	}
+
+	/**
+	 * @return index one past the last outgoing arc of vertex @param v
+	 */
+	public int endArc(int v) {
+		return offsets[v + 1];
+	}
+
+	/**
+	 * @return id of the vertex that outgoing arc @param arc leads to
+	 */
+	public int head(int arc) {
+		return heads[arc];
+	}
+
+	/**
+	 * @return weight of outgoing arc @param arc under metric @param metric
+	 */
+	public double weight(int arc, Metric metric) {
+		return (metric == Metric.DISTANCE) ? distances[arc] : times[arc];
+	}
+
+	/**
+	 * @return weight of outgoing arc @param arc under metric @param metric in whole units of
+	 * 		Metric.unit, Metric.CLOSED if its Highway is closed
+	 */
+	public int fixedWeight(int arc, Metric metric) {
+		return (metric == Metric.DISTANCE) ? fixedDistances[arc] : fixedTimes[arc];
+	}
+
+	/**
+	 * Travel time of outgoing arc @param arc when it is entered at time @param departure,
+	 * the arc's fixed travel time if its Highway has no profile
+	 * @return hours to drive the arc, infinity if its Highway is closed
+	 */
+	public double travelTime(int arc, double departure) {
+		return travelTimeOfDay(arc, TravelTimeProfile.timeOfDay(departure));
+	}
+
+	/**
+	 * Travel time of outgoing arc @param arc when it is entered at @param timeOfDay, in [0, 24),
+	 * for searches that relax several arcs entered at the same time
+	 * @return hours to drive the arc, infinity if its Highway is closed
+	 */
+	double travelTimeOfDay(int arc, double timeOfDay) {
+		int p = arcProfile[arc];
+		double fixed = times[arc];
+		if (p < 0 || fixed == Double.POSITIVE_INFINITY)
+			return fixed;
+		return TravelTimeProfile.travelTime(profileDepartures, profileHours, profileSlopes, profileOffsets[p], profileOffsets[p + 1], timeOfDay);
+	}
+
+	/**
+	 * @return true if any Highway in the snapshot has a travel time profile
+	 */
+	public boolean hasProfiles() {
+		return profileOffsets.length > 1;
+	}
+
+	/**
+	 * @return the Highway edge that outgoing arc @param arc was built from
+	 */
+	public Edge<Highway> highway(int arc) {
+		return highways[arc];
+	}
+
+	/**
+	 * @return index of the first incoming arc of vertex @param v
+	 */
+	public int firstInArc(int v) {
+		return inOffsets[v];
+	}
+
+	/**
+	 * @return index one past the last incoming arc of vertex @param v
+	 */
+	public int endInArc(int v) {
+		return inOffsets[v + 1];
+	}
+
+	/**
+	 * @return id of the vertex that incoming arc @param arc comes from
+	 */
+	public int tail(int arc) {
+		return tails[arc];
+	}
+
+	/**
+	 * @return weight of incoming arc @param arc under metric @param metric
+	 */
+	public double inWeight(int arc, Metric metric) {
+		return (metric == Metric.DISTANCE) ? inDistances[arc] : inTimes[arc];
+	}
+
+	/**
+	 * @return the Highway edge that incoming arc @param arc was built from
+	 */
+	public Edge<Highway> inHighway(int arc) {
+		return inHighways[arc];
+	}
+
+	/**
+	 * Finds the outgoing arc from vertex u to vertex v
+	 * @param u is the id of the arc's tail
+	 * @param v is the id of the arc's head
+	 * @return index of the arc, or -1 if u and v are not adjacent
+	 */
+	public int findArc(int u, int v) {
+		for (int arc = offsets[u]; arc < offsets[u + 1]; arc++)
+			if (heads[arc] == v)
+				return arc;
+		return -1;
+	}
+
+	/**
+	 * Finds the arcs a Highway between two cities was stored as
+	 * @param u is one end of the Highway (its tail if the graph is directed)
+	 * @param v is the other end of the Highway
+	 * @return index of the outgoing arc from u to v, followed by the one from v to u if the graph is undirected
+	 */
+	public int[] arcs(Vertex<City> u, Vertex<City> v) {
+		int from = id(u), to = id(v);
+		int forward = (from < 0 || to < 0) ? -1 : findArc(from, to);
+		if (forward < 0)
+			return new int[0];
+		if (directed || from == to)
+			return new int[] {forward};
+		return new int[] {forward, findArc(to, from)};
+	}
+
+	/**
+	 * @return id of the vertex that outgoing arc @param arc leaves
+	 */
+	public int origin(int arc) {
+		int low = 0, high = numVertices - 1;		//binary search for the last vertex whose arcs start at or before arc
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (offsets[mid] <= arc)
+				low = mid;
+			else
+				high = mid - 1;
+		}
+		return low;
+	}
+
+	/**
+	 * Copies this snapshot with the weights of some arcs re-read from their Highways, after a
+	 * Highway's distance or travel time changed or it was closed or reopened. The topology and
+	 * arc indices are shared with this snapshot, only the weight arrays are copied.
+	 * @param arcs are the outgoing arcs whose Highways changed, such as returned by @method arcs
+	 * @return the reweighted snapshot
+	 */
+	public RoadGraph reweighted(int[] arcs) {
+		RoadGraph copy = new RoadGraph(this);
+		for (int arc : arcs) {
+			Highway highway = highways[arc].getElement();
+			copy.distances[arc] = Metric.DISTANCE.weight(highway);
+			copy.times[arc] = Metric.TIME.weight(highway);
+			copy.fixedDistances[arc] = Metric.DISTANCE.fixedWeight(highway);
+			copy.fixedTimes[arc] = Metric.TIME.fixedWeight(highway);
+			if (directed) {		//the same Highway is also an incoming arc of its head
+				int u = origin(arc), v = heads[arc];
+				for (int in = inOffsets[v]; in < inOffsets[v + 1]; in++)
+					if (tails[in] == u && inHighways[in] == highways[arc]) {
+						copy.inDistances[in] = copy.distances[arc];
+						copy.inTimes[in] = copy.times[arc];
+					}
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Hashes the topology and both weights of the snapshot, so files of precomputed
+	 * routing data can check that they were computed on the same graph
+	 * @return fingerprint of this snapshot
+	 */
+	public long fingerprint() {
+		long hash = directed ? 19 : 17;
+		for (int u = 0; u < numVertices; u++) {
+			for (int arc = offsets[u]; arc < offsets[u + 1]; arc++) {
+				hash = 31 * hash + heads[arc];
+				hash = 31 * hash + Double.doubleToLongBits(distances[arc]);
+				hash = 31 * hash + Double.doubleToLongBits(times[arc]);
+			}
+			hash = 31 * hash + offsets[u + 1];
+		}
+		return hash;
+	}
+
+	/**
+	 * Weight array of the outgoing arcs, for hot loops that index arcs directly.
+	 * The returned array is shared with this snapshot and must not be modified.
+	 * @return arc weights under metric @param metric
+	 */
+	double[] weights(Metric metric) {
+		return (metric == Metric.DISTANCE) ? distances : times;
+	}
+
+	/**
+	 * Fixed-point weight array of the outgoing arcs, for hot loops that index arcs directly.
+	 * The returned array is shared with this snapshot and must not be modified.
+	 * @return arc weights in whole units under metric @param metric
+	 */
+	int[] fixedWeights(Metric metric) {
+		return (metric == Metric.DISTANCE) ? fixedDistances : fixedTimes;
+	}
+
+	/**
+	 * Weight array of the incoming arcs, for hot loops that index arcs directly.
+	 * The returned array is shared with this snapshot and must not be modified.
+	 * @return arc weights under metric @param metric
+	 */
+	double[] inWeights(Metric metric) {
+		return (metric == Metric.DISTANCE) ? inDistances : inTimes;
+	}
+}
@@ -3,11 +3,13 @@ import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import net.datastructures.AdjacencyMapGraph;
+import net.datastructures.Edge;
 import net.datastructures.Vertex;
 
 /** @author Josh Kerber and Amos Cariati for CS10 Lab4
@@ -23,6 +25,9 @@ import net.datastructures.Vertex;
 
 public class RoadMap extends AdjacencyMapGraph<City, Highway> {
 	private Map<String, Vertex<City>> vertices = new HashMap<String, Vertex<City>>();	//create new HashMap to store City objects and their names
+	private RoadGraph snapshot;		//compact routing snapshot of this graph, null until requested or after a change
+	private CityIndex cityIndex;	//spatial index of the City locations, null until requested or after a City is added or removed
+	private List<HighwayListener> listeners = new ArrayList<HighwayListener>();	//notified when a Highway changes
 	
 	/**
 	 * Constructor for RoadMap class
@@ -93,23 +98,265 @@ public class RoadMap extends AdjacencyMapGraph<City, Highway> {
 		}
 	}
 	
+	/**
+	 * Reads travel time profiles for Highways from a file and sets them on the Highways.
+	 * Each line is one breakpoint: "from,to,departure,hours,minutes" with the departure time of day
+	 * written as H:MM, such as "Boston,Weston,7:30,0,45". The lines of a Highway give its profile.
+	 * @param fileName is the input file for travel time profiles
+	 * @throws IOException if the input file cannot be read, or a line does not have five fields in range
+	 * 		(departure 0:00 to 23:59, hours at least 0, minutes 0 to under 60)
+	 * @throws IllegalArgumentException if a line names cities without a Highway between them, or a
+	 * 		Highway's breakpoints do not make a valid profile (see TravelTimeProfile)
+	 */
+	public void readProfileFile(String fileName) throws IOException, IllegalArgumentException {
+		Map<Edge<Highway>, List<double[]>> breakpoints = new LinkedHashMap<Edge<Highway>, List<double[]>>();	//departure and hours of each Highway's breakpoints
+		BufferedReader inputFile = new BufferedReader(new FileReader(fileName));	//create new reader inputFile
+		try {
+			int lineNumber = 0;
+			while (inputFile.ready()) {		//while there is something to read
+				String line = inputFile.readLine().trim();
+				lineNumber++;
+				if (line.isEmpty())
+					continue;
+				String[] data = line.split(",");		//splits the file line by line
+				String where = " on line " + lineNumber + " of " + fileName;
+				if (data.length != 5)
+					throw new IOException("Expected from,to,departure,hours,minutes" + where + ": " + line);
+				String[] clock = data[2].split(":");	//departure time as hours and minutes
+				if (clock.length != 2)
+					throw new IOException("Departure time is not H:MM" + where + ": " + data[2]);
+				double departure = profileField(clock[0], 0, 24, "Departure hour", where)
+						+ profileField(clock[1], 0, 60, "Departure minute", where) / 60.0;
+				double hours = profileField(data[3], 0, Double.POSITIVE_INFINITY, "Travel hours", where)
+						+ profileField(data[4], 0, 60, "Travel minutes", where) / 60.0;
+				Vertex<City> from = vertices.get(data[0]), to = vertices.get(data[1]);
+				Edge<Highway> highway = (from == null || to == null) ? null : getEdge(from, to);
+				if (highway == null)
+					throw new IllegalArgumentException("No highway between " + data[0] + " and " + data[1]);
+				if (!breakpoints.containsKey(highway))
+					breakpoints.put(highway, new ArrayList<double[]>());
+				breakpoints.get(highway).add(new double[] {departure, hours});
+			}
+		}
+		finally {
+			inputFile.close();	//close the file that was being read
+		}
+
+		// build every profile first, so a bad Highway leaves the map unchanged
+		Map<Edge<Highway>, TravelTimeProfile> profiles = new LinkedHashMap<Edge<Highway>, TravelTimeProfile>();
+		for (Map.Entry<Edge<Highway>, List<double[]>> entry : breakpoints.entrySet()) {
+			double[] departures = new double[entry.getValue().size()], hours = new double[departures.length];
+			for (int i = 0; i < departures.length; i++) {
+				departures[i] = entry.getValue().get(i)[0];
+				hours[i] = entry.getValue().get(i)[1];
+			}
+			profiles.put(entry.getKey(), new TravelTimeProfile(departures, hours));
+		}
+		for (Map.Entry<Edge<Highway>, TravelTimeProfile> entry : profiles.entrySet())
+			setProfile(entry.getKey(), entry.getValue());
+	}
+
+	/**
+	 * Reads one number of a travel time profile line
+	 * @param text is the field as written in the file
+	 * @param lowest and @param above bound the field, lowest <= value < above
+	 * @param name and @param where describe the field and its line for the error message
+	 * @return the value of the field
+	 * @throws IOException if the field is not a number or out of range
+	 */
+	private static double profileField(String text, double lowest, double above, String name, String where) throws IOException {
+		double value;
+		try {
+			value = Double.parseDouble(text.trim());
+		}
+		catch (NumberFormatException e) {
+			throw new IOException(name + " is not a number" + where + ": " + text);
+		}
+		if (!(value >= lowest && value < above))
+			throw new IOException(name + " must be at least " + lowest + " and below " + above + where + ": " + text);
+		return value;
+	}
+
 	/**
 	 * Determines if a city in this graph is at point @param p 
 	 * @return the vertex that point @param p in at or null if not at a vertex
 	 */
 	public Vertex<City> cityAt(Point p) {
-		
-		// creates iterator for map of vertices in this object
-		Set<String> cities = vertices.keySet(); // cities now contains all keys of map
-		Iterator<String> iter = cities.iterator(); // iterator for map
-		
-		// while loop terminates when iterator has gone through all cities
-		while (iter.hasNext()) {
-			String city = iter.next(); // sets current city
-			// if vertex in map's city element is near point p
-			if ((vertices.get(city)).getElement().isNear(p)) // implements isNear method of city object
-				return vertices.get(city); // returns vertex point p is near
+		Vertex<City> closest = cityIndex().nearest(p);		//if any city is near p, the closest one is
+		if (closest != null && closest.getElement().isNear(p))
+			return closest;
+		return null; // no vertex in graph is at point p
+	}
+
+	/**
+	 * Finds the cities closest to a point
+	 * @param p is the point to search from, anywhere on or off the map
+	 * @param k is the number of cities wanted
+	 * @return up to k City vertices in order of increasing distance from p
+	 */
+	public List<Vertex<City>> nearestCities(Point p, int k) {
+		return cityIndex().nearest(p, k);
+	}
+
+	/**
+	 * @return spatial index of the current City locations, built on first request and reused until a City is added or removed
+	 */
+	private CityIndex cityIndex() {
+		if (cityIndex == null)
+			cityIndex = new CityIndex(this);
+		return cityIndex;
+	}
+
+	/**
+	 * Looks up a City by its name
+	 * @param name is the City's name as given in the vertex file
+	 * @return the vertex of the City, or null if there is no City with that name
+	 */
+	public Vertex<City> getCity(String name) {
+		return vertices.get(name);
+	}
+
+	/**
+	 * Returns a compact, read-only snapshot of this graph for routing engines
+	 * The snapshot is built on first request and reused until a City or Highway is added or removed
+	 * @return RoadGraph snapshot of the current graph
+	 */
+	public RoadGraph snapshot() {
+		if (snapshot == null)
+			snapshot = new RoadGraph(this);
+		return snapshot;
+	}
+
+	/**
+	 * Changes the distance of a Highway
+	 * @param highway is a Highway edge of this graph
+	 * @param distance is the new distance in miles
+	 * @throws IllegalArgumentException if distance is negative
+	 */
+	public void setDistance(Edge<Highway> highway, double distance) throws IllegalArgumentException {
+		if (!(distance >= 0))
+			throw new IllegalArgumentException("Highway distance must not be negative: " + distance);
+		highway.getElement().setDistance(distance);
+		highwayChanged(highway, false);
+	}
+
+	/**
+	 * Changes the travel time of a Highway
+	 * @param highway is a Highway edge of this graph
+	 * @param hours is the new number of travel hours
+	 * @param minutes is the new number of travel minutes
+	 * @throws IllegalArgumentException if hours is negative or minutes is not from 0 to under 60
+	 */
+	public void setTravelTime(Edge<Highway> highway, double hours, double minutes) throws IllegalArgumentException {
+		if (!(hours >= 0) || !(minutes >= 0 && minutes < 60))		//checked separately, -1h 90m is not 30 minutes
+			throw new IllegalArgumentException("Highway travel time must be hours >= 0 and minutes from 0 to under 60: " + hours + "h " + minutes + "m");
+		highway.getElement().setTravelTime(hours, minutes);
+		highwayChanged(highway, false);
+	}
+
+	/**
+	 * Sets the travel time profile of a Highway, used by time-dependent searches.
+	 * The fixed travel time of the Highway, used by every other search, is unchanged.
+	 * @param highway is a Highway edge of this graph
+	 * @param profile is the travel time by time of day, null to remove the Highway's profile
+	 */
+	public void setProfile(Edge<Highway> highway, TravelTimeProfile profile) {
+		highway.getElement().setProfile(profile);
+		highwayChanged(highway, true);
+	}
+
+	/**
+	 * Closes a Highway, routes will avoid it until it is reopened
+	 * @param highway is a Highway edge of this graph
+	 */
+	public void close(Edge<Highway> highway) {
+		if (!highway.getElement().isClosed()) {
+			highway.getElement().setClosed(true);
+			highwayChanged(highway, false);
 		}
-		return null; // return found if no vertex found - no vertex in graph is at point p
+	}
+
+	/**
+	 * Reopens a closed Highway
+	 * @param highway is a Highway edge of this graph
+	 */
+	public void reopen(Edge<Highway> highway) {
+		if (highway.getElement().isClosed()) {
+			highway.getElement().setClosed(false);
+			highwayChanged(highway, false);
+		}
+	}
+
+	/**
+	 * Registers a listener to be told about Highway changes
+	 * @param listener is notified after every change, in registration order
+	 */
+	public void addHighwayListener(HighwayListener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Unregisters a listener added by @method addHighwayListener
+	 */
+	public void removeHighwayListener(HighwayListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Replaces the snapshot by a reweighted copy after a Highway changed and notifies the listeners
+	 * The topology is unchanged, so the copy is cheap and keeps the same city ids and arc indices
+	 * @param repack is true if the Highway's travel time profile changed: the reweighted copy shares
+	 * 		the packed profiles of the old snapshot, so a full snapshot is taken instead (same ids)
+	 */
+	private void highwayChanged(Edge<Highway> highway, boolean repack) {
+		if (snapshot == null)		//no snapshot yet, the next one reads the new weights
+			return;
+		RoadGraph before = snapshot;
+		Vertex<City>[] ends = endVertices(highway);
+		int[] arcs = before.arcs(ends[0], ends[1]);
+		snapshot = repack ? new RoadGraph(this) : before.reweighted(arcs);
+		for (HighwayListener listener : listeners)
+			listener.highwayChanged(highway, before, snapshot, arcs);
+	}
+
+	/**
+	 * Inserts a new City vertex, discarding any existing snapshot and city index
+	 */
+	@Override
+	public Vertex<City> insertVertex(City element) {
+		snapshot = null;
+		cityIndex = null;
+		Vertex<City> v = super.insertVertex(element);
+		vertices.put(element.getName(), v);		//keep the City findable by name
+		return v;
+	}
+
+	/**
+	 * Inserts a new Highway edge, discarding any existing snapshot
+	 */
+	@Override
+	public Edge<Highway> insertEdge(Vertex<City> u, Vertex<City> v, Highway element) {
+		snapshot = null;
+		return super.insertEdge(u, v, element);
+	}
+
+	/**
+	 * Removes a City vertex and its Highways, discarding any existing snapshot and city index
+	 */
+	@Override
+	public void removeVertex(Vertex<City> v) {
+		snapshot = null;
+		cityIndex = null;
+		vertices.remove(v.getElement().getName());
+		super.removeVertex(v);
+	}
+
+	/**
+	 * Removes a Highway edge, discarding any existing snapshot
+	 */
+	@Override
+	public void removeEdge(Edge<Highway> e) {
+		snapshot = null;
+		super.removeEdge(e);
 	}
 }
\ No newline at end of file
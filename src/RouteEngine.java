@@ -0,0 +1,268 @@
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import net.datastructures.ArrayStack;
+import net.datastructures.Vertex;
+
+/**
+ * RouteEngine Class is the thread-safe entry point for routing on a read-only RoadGraph snapshot,
+ * with no Swing dependency: Any number of threads may call it at the same time. Every answer is
+ * an immutable RouteResult or ShortestPathTree.
+ *
+ * The search engines keep their arrays between searches, so each query checks out a workspace of
+ * engines for its own use and returns it afterwards. Returned workspaces wait in a pool of at most
+ * one per processor for the next query, extra ones are left to the garbage collector; the pool
+ * belongs to the engine, so dropping the engine (as ScrollableMap does for every new snapshot)
+ * frees every workspace with it. Engines within a workspace are created on first use.
+ * Point-to-point routes use a contraction hierarchy per metric, preprocessed once and shared by
+ * every thread (each workspace queries it through its own copy of the query arrays); a directed
+ * snapshot, which a hierarchy cannot be built on, is routed with bidirectional Dijkstra.
+ * Preprocessing contracts every city and costs far more than a query, and a hierarchy belongs to
+ * one snapshot, so every Highway change means building them again. By default the first route
+ * query of a metric builds its hierarchy and waits for it. An engine given a preprocessor instead
+ * builds the hierarchies there (see @method prepare) and answers routes with bidirectional
+ * Dijkstra until they are ready, so a caller such as the Swing event thread never waits for one.
+ */
+
+public class RouteEngine {
+	private final RoadGraph graph;										//snapshot routed on, never modified
+	private final AtomicReferenceArray<ContractionHierarchy> hierarchies;	//preprocessed hierarchy of each metric, null until built
+	private final Object[] hierarchyLocks;								//one per metric, so building one hierarchy does not block the other
+	private final Executor preprocessor;								//builds the hierarchies, null to build them in the first query
+	private final boolean[] scheduled;									//metrics whose hierarchy was handed to the preprocessor
+	private final ArrayStack<Workspace> idle;							//workspaces not checked out
+	private final int maxIdle;											//most workspaces kept idle, one per processor
+
+	/**
+	 * Constructor for the RouteEngine class, the first route query of each metric builds its hierarchy
+	 * @param graph is the snapshot to route on
+	 */
+	public RouteEngine(RoadGraph graph) {
+		this(graph, null);
+	}
+
+	/**
+	 * Constructor for the RouteEngine class
+	 * @param graph is the snapshot to route on
+	 * @param preprocessor runs the hierarchy builds, route queries do not wait for them (null to build in the first query)
+	 */
+	public RouteEngine(RoadGraph graph, Executor preprocessor) {
+		this.graph = graph;
+		this.preprocessor = preprocessor;
+		hierarchies = new AtomicReferenceArray<ContractionHierarchy>(Metric.values().length);
+		scheduled = new boolean[Metric.values().length];
+		hierarchyLocks = new Object[Metric.values().length];
+		for (int i = 0; i < hierarchyLocks.length; i++)
+			hierarchyLocks[i] = new Object();
+		maxIdle = Runtime.getRuntime().availableProcessors();
+		idle = new ArrayStack<Workspace>(maxIdle);
+	}
+
+	/**
+	 * @return snapshot routed on
+	 */
+	public RoadGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Finds the shortest route between two City vertices
+	 * @param source is the City the route starts at
+	 * @param destination is the City the route ends at
+	 * @param metric is the weight to minimize
+	 * @return the shortest route, not found if destination is unreachable
+	 */
+	public RouteResult route(Vertex<City> source, Vertex<City> destination, Metric metric) {
+		return route(graph.id(source), graph.id(destination), metric);
+	}
+
+	/**
+	 * Finds the shortest route between two city ids
+	 * @param source is the id of the City the route starts at
+	 * @param destination is the id of the City the route ends at
+	 * @param metric is the weight to minimize
+	 * @return the shortest route, not found if destination is unreachable
+	 */
+	public RouteResult route(int source, int destination, Metric metric) {
+		Workspace workspace = checkOut();
+		try {
+			if (workspace.queries[metric.ordinal()] == null && !graph.isDirected()) {		//this workspace's query arrays on the shared hierarchy
+				ContractionHierarchy hierarchy = (preprocessor == null) ? hierarchy(metric) : prepare(metric);
+				if (hierarchy != null)
+					workspace.queries[metric.ordinal()] = new ContractionHierarchy(hierarchy);
+			}
+			if (workspace.queries[metric.ordinal()] != null)
+				return workspace.queries[metric.ordinal()].route(source, destination);
+			if (workspace.bidirectional == null)		//directed snapshot, or hierarchy still being built
+				workspace.bidirectional = new BidirectionalDijkstra(graph);
+			return workspace.bidirectional.route(source, destination, metric);
+		}
+		finally {
+			checkIn(workspace);
+		}
+	}
+
+	/**
+	 * Computes the full shortest path tree of a city id
+	 * @param source is the id of the City at the root of the tree
+	 * @param metric is the weight to minimize
+	 * @return shortest paths to every reachable city
+	 */
+	public ShortestPathTree tree(int source, Metric metric) {
+		Workspace workspace = checkOut();
+		try {
+			return workspace.dijkstra().tree(source, metric);
+		}
+		finally {
+			checkIn(workspace);
+		}
+	}
+
+	/**
+	 * Computes the full shortest path trees of a city id under every metric in one traversal
+	 * @param source is the id of the City at the root of the trees
+	 * @return shortest path trees indexed by Metric ordinal
+	 */
+	public ShortestPathTree[] trees(int source) {
+		Workspace workspace = checkOut();
+		try {
+			if (workspace.dual == null)
+				workspace.dual = new DualMetricDijkstra(graph);
+			return workspace.dual.trees(source);
+		}
+		finally {
+			checkIn(workspace);
+		}
+	}
+
+	/**
+	 * Finds every city within a cost budget of a city id
+	 * @param source is the id of the City to search from
+	 * @param metric is the weight the budget is measured in
+	 * @param budget is the largest cost from source, in miles or hours
+	 * @return tree of the cities within budget
+	 */
+	public ShortestPathTree reachable(int source, Metric metric, double budget) {
+		Workspace workspace = checkOut();
+		try {
+			return workspace.dijkstra().reachable(source, metric, budget);
+		}
+		finally {
+			checkIn(workspace);
+		}
+	}
+
+	/**
+	 * Finds the shortest route between two city ids and up to two meaningfully different alternatives
+	 * @param source is the id of the City the routes start at
+	 * @param destination is the id of the City the routes end at
+	 * @param metric is the weight to minimize
+	 * @return the shortest route followed by its alternatives in order of increasing cost, empty if destination is unreachable
+	 */
+	public List<RouteResult> alternatives(int source, int destination, Metric metric) {
+		Workspace workspace = checkOut();
+		try {
+			if (workspace.alternatives == null)
+				workspace.alternatives = new AlternativeRoutes(graph);
+			return workspace.alternatives.routes(source, destination, metric);
+		}
+		finally {
+			checkIn(workspace);
+		}
+	}
+
+	/**
+	 * Starts building the hierarchy of every metric on the preprocessor, or builds them right away
+	 * if the engine has none; does nothing for a directed snapshot
+	 */
+	public void prepare() {
+		if (graph.isDirected())
+			return;
+		for (Metric metric : Metric.values())
+			if (preprocessor == null)
+				hierarchy(metric);
+			else
+				prepare(metric);
+	}
+
+	/**
+	 * Hands the build of a metric's hierarchy to the preprocessor, once, without waiting for it
+	 * @return preprocessed hierarchy of @param metric, or null while it is not built yet
+	 */
+	private ContractionHierarchy prepare(final Metric metric) {
+		ContractionHierarchy hierarchy = hierarchies.get(metric.ordinal());
+		if (hierarchy != null)
+			return hierarchy;
+		synchronized (scheduled) {
+			if (scheduled[metric.ordinal()])
+				return null;
+			scheduled[metric.ordinal()] = true;
+		}
+		preprocessor.execute(new Runnable() {
+			@Override
+			public void run() {
+				hierarchy(metric);
+			}
+		});
+		return null;
+	}
+
+	/**
+	 * Builds the shared hierarchy of a metric the first time any thread needs it; threads needing
+	 * the other metric meanwhile are not held up
+	 * @return preprocessed hierarchy of @param metric, not to be queried directly
+	 */
+	private ContractionHierarchy hierarchy(Metric metric) {
+		ContractionHierarchy hierarchy = hierarchies.get(metric.ordinal());
+		if (hierarchy != null)
+			return hierarchy;
+		synchronized (hierarchyLocks[metric.ordinal()]) {
+			if (hierarchies.get(metric.ordinal()) == null)
+				hierarchies.set(metric.ordinal(), new ContractionHierarchy(graph, metric));
+			return hierarchies.get(metric.ordinal());
+		}
+	}
+
+	/**
+	 * Takes an idle workspace for the calling query, or a new one if none is idle
+	 * @return workspace used by no other query until it is checked in
+	 */
+	private Workspace checkOut() {
+		synchronized (idle) {
+			if (!idle.isEmpty())
+				return idle.pop();
+		}
+		return new Workspace();
+	}
+
+	/**
+	 * Returns a workspace after its query, keeping it for the next query if the pool has room
+	 * @param workspace is a workspace checked out before
+	 */
+	private void checkIn(Workspace workspace) {
+		synchronized (idle) {
+			if (idle.size() < maxIdle)
+				idle.push(workspace);
+		}
+	}
+
+	/**
+	 * The search engines of one query at a time, each created on its first use
+	 */
+	private class Workspace {
+		private final ContractionHierarchy[] queries = new ContractionHierarchy[Metric.values().length];	//copies of the shared hierarchies
+		private BidirectionalDijkstra bidirectional;
+		private Dijkstra dijkstra;
+		private DualMetricDijkstra dual;
+		private AlternativeRoutes alternatives;
+
+		/**
+		 * @return this workspace's Dijkstra engine
+		 */
+		private Dijkstra dijkstra() {
+			if (dijkstra == null)
+				dijkstra = new Dijkstra(graph);
+			return dijkstra;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/**
+ * RouteQuery Class is one request of a batch for BatchRouter:
+ * The names of the City a route starts and ends at, and the metric to minimize
+ */
+
+public class RouteQuery {
+	private final String source, destination;	//City names
+	private final Metric metric;				//weight the route minimizes
+
+	/**
+	 * Constructor for the RouteQuery class
+	 * @param source is the name of the City the route starts at
+	 * @param destination is the name of the City the route ends at
+	 * @param metric is the weight to minimize
+	 */
+	public RouteQuery(String source, String destination, Metric metric) {
+		this.source = source;
+		this.destination = destination;
+		this.metric = metric;
+	}
+
+	/**
+	 * @return name of the City the route starts at
+	 */
+	public String getSource() {
+		return source;
+	}
+
+	/**
+	 * @return name of the City the route ends at
+	 */
+	public String getDestination() {
+		return destination;
+	}
+
+	/**
+	 * @return weight the route minimizes
+	 */
+	public Metric getMetric() {
+		return metric;
+	}
+
+	/**
+	 * @return the query as "source -> destination (METRIC)"
+	 */
+	@Override
+	public String toString() {
+		return source + " -> " + destination + " (" + metric + ")";
+	}
+}
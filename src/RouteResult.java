@@ -0,0 +1,146 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import net.datastructures.Edge;
+import net.datastructures.Vertex;
+
+/**
+ * RouteResult Class is the immutable answer to a point-to-point route query on a RoadGraph:
+ * Contains the cities on the route from source to destination, the route's cost under the
+ * metric it was optimized for, and how many cities the search settled to find it
+ */
+
+public class RouteResult {
+	private final RoadGraph graph;		//snapshot the route was computed on
+	private final Metric metric;		//weight the route minimizes
+	private final double cost;			//total weight of the route, infinity if there is no route
+	private final int[] path;			//city ids from source to destination, empty if there is no route
+	private final int settled;			//number of cities removed from the search queue(s)
+
+	/**
+	 * Constructor for the RouteResult class, used by the routing engines
+	 * @param graph is the snapshot the route was computed on
+	 * @param metric is the weight the route minimizes
+	 * @param cost is the total weight of the route
+	 * @param path is the city ids from source to destination, not copied
+	 * @param settled is the number of cities the search settled
+	 */
+	RouteResult(RoadGraph graph, Metric metric, double cost, int[] path, int settled) {
+		this.graph = graph;
+		this.metric = metric;
+		this.cost = cost;
+		this.path = path;
+		this.settled = settled;
+	}
+
+	/**
+	 * Builds the result of a search that found no route
+	 * @return RouteResult with infinite cost and an empty path
+	 */
+	static RouteResult unreachable(RoadGraph graph, Metric metric, int settled) {
+		return new RouteResult(graph, metric, Double.POSITIVE_INFINITY, new int[0], settled);
+	}
+
+	/**
+	 * @return true if the destination can be reached from the source
+	 */
+	public boolean isFound() {
+		return path.length > 0;
+	}
+
+	/**
+	 * @return metric the route minimizes
+	 */
+	public Metric getMetric() {
+		return metric;
+	}
+
+	/**
+	 * @return total weight of the route under its metric, infinity if there is no route
+	 */
+	public double getCost() {
+		return cost;
+	}
+
+	/**
+	 * @return number of cities the search settled to answer the query
+	 */
+	public int getSettled() {
+		return settled;
+	}
+
+	/**
+	 * @return number of cities on the route, including source and destination
+	 */
+	public int size() {
+		return path.length;
+	}
+
+	/**
+	 * @return id (in the RoadGraph the route was computed on) of the city at position @param i of the route
+	 */
+	public int cityId(int i) {
+		return path[i];
+	}
+
+	/**
+	 * @return copy of the city ids on the route from source to destination
+	 */
+	public int[] getPath() {
+		return path.clone();
+	}
+
+	/**
+	 * @return snapshot the route was computed on
+	 */
+	public RoadGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return City vertices on the route from source to destination
+	 */
+	public List<Vertex<City>> getCities() {
+		List<Vertex<City>> cities = new ArrayList<Vertex<City>>(path.length);
+		for (int v : path)
+			cities.add(graph.vertex(v));
+		return Collections.unmodifiableList(cities);
+	}
+
+	/**
+	 * @return Highway edges on the route from source to destination
+	 */
+	public List<Edge<Highway>> getHighways() {
+		List<Edge<Highway>> highways = new ArrayList<Edge<Highway>>(Math.max(0, path.length - 1));
+		for (int i = 1; i < path.length; i++)
+			highways.add(graph.highway(graph.findArc(path[i - 1], path[i])));
+		return Collections.unmodifiableList(highways);
+	}
+
+	/**
+	 * @return total distance in miles of the route, whichever metric it minimizes
+	 */
+	public double getDistance() {
+		return total(Metric.DISTANCE);
+	}
+
+	/**
+	 * @return total travel time in hours of the route, whichever metric it minimizes
+	 */
+	public double getTravelTime() {
+		return total(Metric.TIME);
+	}
+
+	/**
+	 * Adds up the weights of the route's arcs under @param m
+	 * @return total weight, infinity if there is no route
+	 */
+	private double total(Metric m) {
+		if (path.length == 0)
+			return Double.POSITIVE_INFINITY;
+		double sum = 0.0;
+		for (int i = 1; i < path.length; i++)
+			sum += graph.weight(graph.findArc(path[i - 1], path[i]), m);
+		return sum;
+	}
+}
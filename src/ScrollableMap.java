@@ -12,9 +12,14 @@
 
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
 import javax.swing.*;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.regex.Pattern;
 
 import net.datastructures.*;
@@ -33,22 +38,53 @@ public class ScrollableMap extends JLabel implements Scrollable,
   // set by user
   private Vertex<City> sourceCity, destinationCity; // current condition of the map // finds and displays path if both do not equal null
   private boolean findingSource = true, useDistance = true; // identifies if the next click will find a source or a destination city
+  private double reachBudget = Double.POSITIVE_INFINITY; // largest cost from the source drawn in the tree overlay, infinity to draw every city
+  private static final int CACHED_TREES = 64; // number of recent shortest path trees kept, so re-clicking a source or toggling metric is instant
   
   /** Instance variables for Dijkstra's algorithm -- @method Dijkstras
   * Helps find shortest path from a source vertex in graph roadmap to all other vertices in that graph based on edge weight
   * 
   * Instance variables...
-  *  @variable queue priority queue will contain vertices with distance values from source
-  *  @variable pqTokens keeps track of vertices in priority queue while their distance values are being updated, to help add back to queue
-  *  @variable distanceMap and @variable travelTimeMap keep track of path length values from source
+  *  @variable graph compact snapshot of roadmap that the search runs over, every city is numbered by a dense id
+  *  @variable trees cache of recently computed shortest path trees, by source city and metric
+  *  @variable engine runs every search on graph, the map keeps no search state of its own
+  *  @variable PREPROCESSOR builds the contraction hierarchies of each new engine off the event thread
   *  
-  *  @variable prevMap contains a vertex as a key and its previous vertex (in the shortest path) as a value...
-  *  	...prevMap will be updated every time a new source city is clicked on the map
+  *  @variable tree contains for each city id its path length from source and its previous city (in the shortest path)...
+  *  	...tree will be updated every time a new source city is clicked on the map
   */
-  private HeapAdaptablePriorityQueue<Double, Vertex<City>> queue = new HeapAdaptablePriorityQueue<Double, Vertex<City>>();
-  private ProbeHashMap<Vertex<City>, Entry<Double,Vertex<City>>> pqTokens = new ProbeHashMap<>();
-  private HashMap<Vertex<City>, Double> pathWeight;
-  private HashMap<Vertex<City>, Vertex<City>> prevMap = new HashMap<Vertex<City>, Vertex<City>>();
+  private RoadGraph graph;
+  private TreeCache trees;
+  private RouteEngine engine;
+  private static final ExecutorService PREPROCESSOR = Executors.newCachedThreadPool(new ThreadFactory() {
+	@Override
+	public Thread newThread(Runnable r) {
+		Thread thread = new Thread(r, "hierarchy preprocessing");
+		thread.setDaemon(true); // never keeps the application from exiting
+		return thread;
+	}
+  });
+  private ShortestPathTree tree;
+  
+  /** Instance variables for source-to-destination queries -- @method findRoute
+  *  @variable route current shortest path from source city to destination city, null until a destination is clicked
+  *  @variable alternativeRoutes shortest route followed by its alternatives for the current source and destination,
+  *  	null unless alternatives are shown (they cost several more searches, so a plain destination click skips them)
+  *  @variable alternativesShown true while the user has asked for alternative routes
+  */
+  private RouteResult route;
+  private List<RouteResult> alternativeRoutes;
+  private boolean alternativesShown = false;
+  private static final Color[] ALTERNATIVE_COLORS = { new Color(0, 120, 255), new Color(0, 170, 60) }; // one color per alternative route
+  
+  /** Instance variables for drawing -- @method paintComponent
+  *  @variable overlay translucent image of the tree or routes on display, drawn once and copied on every repaint (such as each scroll step),
+  *  	cleared and reused for the next tree or route as long as the component keeps its size
+  *  @variable overlayOf tree or route the overlay was drawn from, a new tree or route (new source, destination, metric or budget) redraws it
+  */
+  private static final Stroke PATH_STROKE = new BasicStroke(5.0f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER); // stroke of every drawn path
+  private BufferedImage overlay;
+  private Object overlayOf;
   
   /**
    * Constructor.
@@ -99,44 +135,93 @@ public class ScrollableMap extends JLabel implements Scrollable,
     Graphics2D page2D = (Graphics2D) page;
     setRenderingHints(page2D);
     super.paintComponent(page2D);
-    Stroke oldStroke = page2D.getStroke();  // save the current stroke
-    page2D.setStroke(new BasicStroke(5.0f, BasicStroke.CAP_BUTT,
-        BasicStroke.JOIN_MITER));
+    if (sourceCity == null || getWidth() <= 0 || getHeight() <= 0)
+      return;
     
     /**
-     * If there is a current source city but no destination city selected
-     * draw shortest paths from source city to all destination cities using prevMap
-     * prevMap already updated for current source city in @method mouseClicked 
+     * With no destination city selected the shortest paths from the source city to all cities (tree) are shown,
+     * otherwise the shortest path from source to destination (route) and its alternatives
+     * both already updated in @method mouseClicked, the overlay is redrawn only when they have been replaced
      */
-    if (sourceCity != null && destinationCity == null) {
-    	// for each vertex in the roadmap graph
-    	for (Vertex<City> v : roadmap.vertices()) {
-    		// check if there is a previous vertex from current vertex v
-    		if (prevMap.get(v) != null)
-    			// draw line on the page from current vertex v to it's predecessor 
-    			page2D.drawLine(v.getElement().getLocation().x, v.getElement().getLocation().y, 
-    					prevMap.get(v).getElement().getLocation().x, prevMap.get(v).getElement().getLocation().y);
-    	}
-    }
+    Object shown = (destinationCity == null) ? tree : route;
+    double scale = page2D.getTransform().getScaleX(); // device pixels per map pixel, above 1 on high density displays
+    int width = (int) Math.ceil(getWidth() * scale), height = (int) Math.ceil(getHeight() * scale);
+    if (overlay == null || overlayOf != shown || overlay.getWidth() != width || overlay.getHeight() != height)
+    	drawOverlay(shown, width, height, scale, page2D.getColor());
     
-    /**
-     * If there is a current source city and current destination city selected
-     * draw shortest path from source city to destination city using prevMap
-     * prevMap already updated for current source city in @method mouseClicked 
-     */
-	if (sourceCity != null && destinationCity != null) {	
-		// set current vertex city to the current destination city
-		Vertex<City> current = destinationCity;
-		// while loop terminates when prevMap identifies that there is no additional predecessor from the current vertex
-		while (prevMap.get(current) != null) {
-			// draw a line on the page from current vertex to it's predecessor city
-			page2D.drawLine(current.getElement().getLocation().x, current.getElement().getLocation().y, 
-				prevMap.get(current).getElement().getLocation().x, prevMap.get(current).getElement().getLocation().y);
-			// current vertex set to its predecessor in preparation to draw next line in path
-			current = prevMap.get(current);
+    // copy only the part being repainted, pixel for pixel in device space so nothing is scaled or interpolated
+    Rectangle clip = page2D.getClipBounds();
+    if (clip == null)
+    	clip = new Rectangle(0, 0, getWidth(), getHeight());
+    int x1 = Math.max(0, (int) Math.floor(clip.x * scale)), y1 = Math.max(0, (int) Math.floor(clip.y * scale));
+    int x2 = Math.min(width, (int) Math.ceil((clip.x + clip.width) * scale));
+    int y2 = Math.min(height, (int) Math.ceil((clip.y + clip.height) * scale));
+    if (x1 >= x2 || y1 >= y2)
+    	return;
+    AffineTransform transform = page2D.getTransform();
+    page2D.setTransform(AffineTransform.getTranslateInstance(transform.getTranslateX(), transform.getTranslateY()));
+    page2D.drawImage(overlay, x1, y1, x2, y2, x1, y1, x2, y2, null);
+    page2D.setTransform(transform);
+  }
+  
+  /**
+  * Draws the tree or the routes on display into the translucent overlay, a new one only if the size changed
+  * @param shown is the tree or route to draw
+  * @param width and @param height are the size of the overlay in device pixels
+  * @param scale is the number of device pixels per map pixel
+  * @param color is the color of the tree and the shortest route
+  */
+  private void drawOverlay(Object shown, int width, int height, double scale, Color color) {
+	Graphics2D image2D;
+	if (overlay == null || overlay.getWidth() != width || overlay.getHeight() != height) {
+		overlay = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		image2D = overlay.createGraphics();
+	}
+	else {
+		image2D = overlay.createGraphics();
+		image2D.setComposite(AlphaComposite.Clear); // erase the previous tree or route
+		image2D.fillRect(0, 0, width, height);
+		image2D.setComposite(AlphaComposite.SrcOver);
+	}
+	overlayOf = shown;
+	setRenderingHints(image2D);
+	image2D.scale(scale, scale);
+	image2D.setStroke(PATH_STROKE);
+	if (shown == tree) {
+		// one line from each city id to its predecessor, all in one path
+		Path2D.Float lines = new Path2D.Float(Path2D.WIND_NON_ZERO, 2 * graph.numVertices());
+		for (int v = 0; v < graph.numVertices(); v++)
+			if (tree.prev(v) >= 0) {
+				lines.moveTo(graph.x(v), graph.y(v));
+				lines.lineTo(graph.x(tree.prev(v)), graph.y(tree.prev(v)));
+			}
+		image2D.setColor(color);
+		image2D.draw(lines);
+	}
+	else {
+		// draw the alternative routes first (skipping the shortest route at index 0), each in its own color
+		for (int a = 1; alternativeRoutes != null && a < alternativeRoutes.size(); a++) {
+			image2D.setColor(ALTERNATIVE_COLORS[(a - 1) % ALTERNATIVE_COLORS.length]);
+			image2D.draw(routePath(alternativeRoutes.get(a)));
 		}
+		image2D.setColor(color);
+		image2D.draw(routePath(route));
 	}
-    page2D.setStroke(oldStroke);    // restore the saved stroke
+	image2D.dispose();
+  }
+  
+  /**
+  * @return line through the cities of @param r in order, empty if no route was found
+  */
+  private Path2D.Float routePath(RouteResult r) {
+	Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, Math.max(r.size(), 1));
+	for (int i = 0; i < r.size(); i++) {
+		if (i == 0)
+			path.moveTo(graph.x(r.cityId(i)), graph.y(r.cityId(i)));
+		else
+			path.lineTo(graph.x(r.cityId(i)), graph.y(r.cityId(i)));
+	}
+	return path;
   }
 
   // Enable all rendering hints to enhance the quality.
@@ -171,18 +256,11 @@ public class ScrollableMap extends JLabel implements Scrollable,
 		destinationCity = null;
 		
 		// run Dijkstra's algorithm to find shortest paths from source city to all other vertices in the map
-		// Dijkstras method does not return anything // updates the instance variable 'prevMap' which will be used to draw path accordingly
+		// Dijkstras method does not return anything // updates the instance variable 'tree' which will be used to draw path accordingly
 		Dijkstras(sourceCity);
 		
-		if (useDistance)
-			// info label updated to tell user the current state of the map
-			infoLabel.setText("Shortest paths from " + sourceCity.getElement().getName() + " displayed using DISTANCE. "
-				+ "Please select destination.");
-		
-		if (!useDistance)
-			// info label updated to tell user the current state of the map
-			infoLabel.setText("Shortest paths from " + sourceCity.getElement().getName() + " displayed using TIME. "
-				+ "Please select destination.");
+		// info label updated to tell user the current state of the map
+		infoLabel.setText(treeLabel());
 				
 		// destination button becomes activated once a source city is selected
 		destButton.setEnabled(true);
@@ -192,9 +270,13 @@ public class ScrollableMap extends JLabel implements Scrollable,
 	if (!findingSource && (roadmap.cityAt(e.getPoint()) != null)) {
 		// the point the user clicked becomes the destination city of the current map state
 		destinationCity = roadmap.cityAt(e.getPoint());
+		
+		// run a bidirectional search between source and destination city only
+		// findRoute method does not return anything // updates the instance variable 'route' which will be used to draw path
+		findRoute();
 				
 		if (useDistance) {
-			String miles = Double.toString(pathWeight.get(destinationCity));
+			String miles = Double.toString(route.getCost());
 			String[] placeHolder = miles.split(Pattern.quote("."));
 			if (placeHolder[1].length() > 2) {
 				placeHolder[1] = placeHolder[1].substring(0, 2);
@@ -206,7 +288,7 @@ public class ScrollableMap extends JLabel implements Scrollable,
 		}
 		
 		if (!useDistance) {
-			String timeString = Double.toString(pathWeight.get(destinationCity));
+			String timeString = Double.toString(route.getCost());
 			String[] placeHolder = timeString.split(Pattern.quote("."));
 			String hoursString = placeHolder[0];
 			if (Integer.parseInt(hoursString) == 1)
@@ -330,18 +412,21 @@ public class ScrollableMap extends JLabel implements Scrollable,
   public void useTime() {
 	// user must be finding paths based on time now // set useDistance variable to false establishing such state
     useDistance = false;
+    reachBudget = Double.POSITIVE_INFINITY; // a budget in the other metric's units no longer applies
     
     // if a source city has been selected
     if (sourceCity != null) {
-    	Dijkstras(sourceCity); // re-run to find shortest paths from travel time now
-    	if (destinationCity == null) // if a destination city has not been selected
+    	if (destinationCity == null) { // if a destination city has not been selected
+    		Dijkstras(sourceCity); // re-run to find shortest paths from travel time now
     		// update label establishing use of time
-    		infoLabel.setText("Shortest paths from " + sourceCity.getElement().getName() + " displayed using TIME. "
-    				+ "Please select destination.");
-    	else // if a destination city has been selected
+    		infoLabel.setText(treeLabel());
+    	}
+    	else { // if a destination city has been selected
+    		findRoute(); // re-run to find shortest path to destination from travel time now
     		// update label establishing use of time
     		infoLabel.setText("Shortest path displayed from " + sourceCity.getElement().getName() + " to " + 
 					destinationCity.getElement().getName() + " using TIME.");
+    	}
     	repaint(); // update path graphics
     }
   }
@@ -351,107 +436,121 @@ public class ScrollableMap extends JLabel implements Scrollable,
   public void useDistance() {
 	// user must be finding paths based on distance now // set useDistance variable to true establishing such state
     useDistance = true;
+    reachBudget = Double.POSITIVE_INFINITY; // a budget in the other metric's units no longer applies
     
     // if a source city has been selected
     if (sourceCity != null) {
-    	Dijkstras(sourceCity); // re-run to find shortest paths from distance now
-    	if (destinationCity == null) // if a destination city has not been selected
+    	if (destinationCity == null) { // if a destination city has not been selected
+    		Dijkstras(sourceCity); // re-run to find shortest paths from distance now
+    		// update label establishing use of distance
+    		infoLabel.setText(treeLabel());
+    	}
+    	else { // if a destination city has been selected
+    		findRoute(); // re-run to find shortest path to destination from distance now
     		// update label establishing use of distance
-    		infoLabel.setText("Shortest paths from " + sourceCity.getElement().getName() + " displayed using DISTANCE. "
-    				+ "Please select destination.");
-    	else // if a destination city has been selected
-    		// update label establishing use of time
     		infoLabel.setText("Shortest path displayed from " + sourceCity.getElement().getName() + " to " + 
 					destinationCity.getElement().getName() + " using DISTANCE.");
+    	}
     	repaint(); // update path graphics
     }
   }
   
-  /**
-  * Implement Dijikstra's algorithm on a graph with a given source variable @param sourceCity
-  * @return a map that holds the shortest path from the source to all other vertices in the graph
-  * Return map will have vertex as a key and its previous vertex (in the shortest path) as a value
-  */
-  public void Dijkstras(Vertex<City> sourceCity) {
-	pathWeight = new HashMap<Vertex<City>, Double>(); // initialize map to contain vertices path weights from the source
-	
-	// creates iterator for all the vertices in the graph
-	Iterable<Vertex<City>> cities = roadmap.vertices(); // cities now contains all keys of map
-	Iterator<Vertex<City>> citiesIter = cities.iterator(); // iterator for map
-
-	// loop terminates when the iterator has iterated through all vertices in the map
-	while (citiesIter.hasNext()) {
-		// set current iterator city as vertex<city> variable "city"
-		Vertex<City> city = citiesIter.next();
-		
-		if (city == sourceCity) // if the beginning of the path
-			pathWeight.put(city, 0.0); // source vertex is the beginning of the path -- distance so far = 0
-		else 
-				// set all vertex distances to infinity to identify it hasn't been analyzed yet
-			pathWeight.put(city, Double.POSITIVE_INFINITY); 
-			// insert city in pq tokens map with current distance // insert city into the queue with current distance
-		pqTokens.put(city, queue.insert(pathWeight.get(city), city)); // entry into queue becomes value of tokens map
+  // Called when the reachable button is pressed.  Limits the tree overlay to the cities
+  // within @param budget (miles or hours, in the current metric) of the source, infinity to show all.
+  public void showReachable(double budget) {
+	reachBudget = budget;
+	// if a source city has been selected and the tree is on display, redraw it within the budget
+	if (sourceCity != null && destinationCity == null) {
+		Dijkstras(sourceCity);
+		infoLabel.setText(treeLabel());
+		repaint();
+	}
+  }
 
-		// set previous vertex of all vertices to null
-		// no previous until vertex is analyzed
-		prevMap.put(city, null);
+  // Called when the alternatives button is toggled.  Shows or hides up to two alternative routes
+  // next to the shortest route, @param show is true to show them.
+  public void showAlternatives(boolean show) {
+	alternativesShown = show;
+	// if a route is on display, find it again with or without its alternatives
+	if (sourceCity != null && destinationCity != null) {
+		findRoute();
+		overlayOf = null; // the route may be unchanged, the overlay still needs redrawing
+		repaint();
 	}
-	
-	// begin analyzing and creating path with previous map
-	while (!queue.isEmpty()) { // while loop terminates when all vertices have been removed from queue && shortest paths found
-		Vertex<City> u = queue.removeMin().getValue(); // pop vertex with shortest path value 
-		pqTokens.remove(u); // remove same vertex from tokens map
-		
-		// follow edges from source
-			
-		// creates iterator for all the vertices in the graph
-		Iterable<Edge<Highway>> edges = roadmap.outgoingEdges(u); // edges now contains all edges leaving vertex u
-		Iterator<Edge<Highway>> edgesIter = edges.iterator(); // iterator for map
-			
-		while (edgesIter.hasNext()) { // while loop terminates when all outgoing edges of vertex u reached
-			Edge<Highway> edge = edgesIter.next(); // current edge set
-			Vertex<City> v = roadmap.opposite(u, edge); // vertex v is the vertex at the end of that edge, adjacent to vertex u
-			
-			// relaxation step
-			// find out if edge(u, v) is a better path to v
-			relax(u, v); 
+  }
+
+  /**
+  * @return info label text for the tree overlay of the current source city
+  */
+  private String treeLabel() {
+	String using = useDistance ? "DISTANCE" : "TIME";
+	if (reachBudget == Double.POSITIVE_INFINITY)
+		return "Shortest paths from " + sourceCity.getElement().getName() + " displayed using " + using + ". "
+				+ "Please select destination.";
+	return tree.size() + " cities within " + reachBudget + (useDistance ? " miles" : " hours") + " of "
+			+ sourceCity.getElement().getName() + " displayed using " + using + ". Please select destination.";
+  }
+  
+  /**
+  * Takes a fresh snapshot of the roadmap if it has changed, and sizes the search state to match
+  */
+  private void refreshGraph() {
+	if (graph != roadmap.snapshot()) {
+		graph = roadmap.snapshot();
+		// the tree cache repairs itself when a highway changes, it is only replaced when cities or highways are added or removed
+		if (trees == null || trees.getGraph() != graph) {
+			if (trees != null)
+				roadmap.removeHighwayListener(trees);
+			trees = new TreeCache(graph, CACHED_TREES);
+			roadmap.addHighwayListener(trees);
 		}
+		// hierarchies belong to one snapshot, so every highway change means contracting every city again, once per metric:
+		// that runs in the background, and routes found meanwhile use bidirectional Dijkstra instead of waiting in the event thread
+		// (builds for a snapshot that is replaced before they finish still run to the end on their own thread and are dropped)
+		engine = new RouteEngine(graph, PREPROCESSOR);
+		engine.prepare();
 	}
   }
-	
- /**
- * Relaxation step in Dijkstra's algorithm
- * @param vertex of current edge being analyzed
- * @param other vertex of current edge being analyzed
- */
-  public void relax(Vertex<City> u, Vertex<City> v) {
-	if (useDistance) { // if analyzing path by shortest distance
-		// if path from source vertex to v following edge(u, v) is shorter than current distance value from source to v
-		if ((pathWeight.get(u) + roadmap.getEdge(u, v).getElement().getDistance()) < pathWeight.get(v)) {
-			// shorter path found
-			// update v's distance with distance from source vertex to v following edge(u, v)
-			pathWeight.put(v, (roadmap.getEdge(u, v).getElement().getDistance() + pathWeight.get(u)));	
-			// set v's previous vertex (in path) to vertex u
-			prevMap.put(v, u);
-			// replace v's distance value in queue
-			// reference distance map for new updated shorter distance value
-			// reference distance map for help inserting vertex v back into queue -- value of tokens map is entry variable
-			queue.replaceKey(pqTokens.get(v), pathWeight.get(v));
-		}
+  
+  /**
+  * Finds the shortest path from the current source city to the current destination city
+  * Runs a bidirectional search on the contraction hierarchy for the current metric instead of reading
+  * the path off a full one-to-all search, so only a few dozen cities are settled
+  * (a plain bidirectional search while the hierarchy of a new snapshot is still being built)
+  */
+  public void findRoute() {
+	refreshGraph(); // search the current state of the roadmap
+	Metric metric = useDistance ? Metric.DISTANCE : Metric.TIME;
+	// shortcuts on the route are unpacked into the original highways, so paintComponent draws real roads
+	route = engine.route(sourceCity, destinationCity, metric);
+	// up to two alternatives with bounded detour and limited overlap, drawn in other colors, only searched while they are shown
+	if (alternativesShown)
+		alternativeRoutes = engine.alternatives(graph.id(sourceCity), graph.id(destinationCity), metric);
+	else
+		alternativeRoutes = null;
+  }
+  
+  /**
+  * Implement Dijikstra's algorithm on a graph with a given source variable @param sourceCity
+  * Updates tree with the shortest path length from the source to all other cities in the graph
+  * and each city's previous city (in the shortest path)
+  * Trees of recent sources and metrics are reused from the cache instead of being recomputed
+  */
+  public void Dijkstras(Vertex<City> sourceCity) {
+	refreshGraph(); // search the current state of the roadmap
+	Metric metric = useDistance ? Metric.DISTANCE : Metric.TIME;
+	int source = graph.id(sourceCity);
+	if (reachBudget != Double.POSITIVE_INFINITY) {
+		// only the cities within budget are searched, the search stops once the closest unsettled city is beyond it
+		tree = engine.reachable(source, metric, reachBudget);
+		return;
 	}
-	if (!useDistance) { // if analyzing path by shortest travel time
-		// if path from source vertex to v following edge(u, v) is shorter than current travel time value from source to v
-		if ((pathWeight.get(u) + roadmap.getEdge(u, v).getElement().getTravelTime()) < pathWeight.get(v)) {
-			// shorter path found
-			// update v's travel time with travel time from source vertex to v following edge(u, v)
-			pathWeight.put(v, (roadmap.getEdge(u, v).getElement().getTravelTime() + pathWeight.get(u)));
-			// set v's previous vertex (in path) to vertex u
-			prevMap.put(v, u);
-			// replace v's travelTime value in queue
-			// reference travelTime map for new updated shorter travelTime value
-			// reference tokens map for help inserting vertex v back into queue -- value of tokens map is entry variable
-			queue.replaceKey(pqTokens.get(v), pathWeight.get(v));
-		}
+	// a new source gets the trees of both metrics from one traversal, so toggling the metric afterwards is a cache hit
+	tree = trees.lookup(source, metric);
+	if (tree == null) {
+		ShortestPathTree[] computed = engine.trees(source);
+		trees.putAll(computed);
+		tree = computed[metric.ordinal()];
 	}
   }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+import java.util.Arrays;
+
+/**
+ * SearchWorkspace Class holds the tentative cost and previous city of every city id for one
+ * search at a time, and forgets them in constant time: Each entry is stamped with the generation
+ * (search number) that wrote it, and @method reset starts a new generation, so entries of earlier
+ * searches read as unreached without touching the arrays. A short query on a big graph then costs
+ * only the cities it reaches, not an initialization of all n.
+ *
+ * A search that needs to know which cities are final can also mark them settled, with the same stamps.
+ *
+ * The arrays are reused by every search, so a workspace must not be shared between threads;
+ * each engine has its own, and RouteEngine checks out separate engines for every concurrent query.
+ */
+
+public class SearchWorkspace {
+	private final double[] cost;		//tentative cost of each city id, valid if stamped with the current generation
+	private final int[] prev;			//previous city id (or arc or edge, as the search chooses), valid likewise
+	private final int[] stamp;			//generation that last wrote each entry
+	private final int[] settled;		//generation that last settled each city
+	private int generation = 1;			//stamps start at 0, so nothing is reached before the first search
+
+	/**
+	 * Constructor for the SearchWorkspace class
+	 * @param n is the number of city ids
+	 */
+	public SearchWorkspace(int n) {
+		cost = new double[n];
+		prev = new int[n];
+		stamp = new int[n];
+		settled = new int[n];
+	}
+
+	/**
+	 * Starts a new search, every city reads as unreached afterwards
+	 */
+	public void reset() {
+		if (++generation == Integer.MAX_VALUE) {		//stamps would wrap around, clear them once
+			Arrays.fill(stamp, 0);
+			Arrays.fill(settled, 0);
+			generation = 1;
+		}
+	}
+
+	/**
+	 * @return true if city @param v has been reached by the current search
+	 */
+	public boolean isReached(int v) {
+		return stamp[v] == generation;
+	}
+
+	/**
+	 * @return tentative cost of city @param v in the current search, infinity if it has not been reached
+	 */
+	public double cost(int v) {
+		return (stamp[v] == generation) ? cost[v] : Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * @return previous city id of city @param v in the current search, -1 if none or not reached
+	 */
+	public int prev(int v) {
+		return (stamp[v] == generation) ? prev[v] : -1;
+	}
+
+	/**
+	 * Records that the current search reached a city
+	 * @param v is the id of the city
+	 * @param c is its tentative cost
+	 * @param p is its previous city id, -1 for the start of the search
+	 */
+	public void set(int v, double c, int p) {
+		cost[v] = c;
+		prev[v] = p;
+		stamp[v] = generation;
+	}
+
+	/**
+	 * Marks city @param v as settled by the current search, its cost is final
+	 */
+	public void settle(int v) {
+		settled[v] = generation;
+	}
+
+	/**
+	 * @return true if city @param v has been settled by the current search
+	 */
+	public boolean isSettled(int v) {
+		return settled[v] == generation;
+	}
+
+	/**
+	 * Follows the previous cities back from a city to the start of the search
+	 * @param v is the id of a reached city
+	 * @return city ids from the start of the search to v
+	 */
+	public int[] path(int v) {
+		int length = 0;
+		for (int u = v; u >= 0; u = prev(u))
+			length++;
+		int[] path = new int[length];
+		for (int u = v; u >= 0; u = prev(u))
+			path[--length] = u;
+		return path;
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * ShortestPathTree Class is the immutable result of a Dijkstra search from one source city:
+ * Stores for every city id its shortest path cost from the source and its previous city on that
+ * path, as compact primitive arrays, plus the cities in the order the search settled them
+ * (which is increasing order of cost).
+ *
+ * A search that stopped early (at its targets or a cost or hop cap) only contains the
+ * cities it settled; every other city reads as unreached.
+ */
+
+public class ShortestPathTree {
+	private final RoadGraph graph;		//snapshot the tree was computed on
+	private final Metric metric;		//weight the tree minimizes
+	private final int source;			//id of the root city
+	private final double[] cost;		//cost from source for each city id, infinity if not settled
+	private final int[] prev;			//previous city id on the shortest path, -1 for the source and unsettled cities
+	private final int[] order;			//settled city ids in order of increasing cost
+
+	/**
+	 * Constructor for the ShortestPathTree class, used by the routing engines
+	 * The arrays are not copied and must not be modified afterwards
+	 * @param graph is the snapshot the tree was computed on
+	 * @param metric is the weight the tree minimizes
+	 * @param source is the id of the root city
+	 * @param cost is the cost from source for each city id, infinity if not settled
+	 * @param prev is the previous city id for each city id, -1 if none
+	 * @param order is the settled city ids in order of increasing cost
+	 */
+	ShortestPathTree(RoadGraph graph, Metric metric, int source, double[] cost, int[] prev, int[] order) {
+		this.graph = graph;
+		this.metric = metric;
+		this.source = source;
+		this.cost = cost;
+		this.prev = prev;
+		this.order = order;
+	}
+
+	/**
+	 * Moves the tree to a reweighted snapshot whose changes did not affect any of its shortest paths
+	 * The arrays are shared, not copied, since neither tree modifies them
+	 * @param reweighted is a snapshot with the same topology, such as RoadGraph.reweighted returns
+	 * @return the same tree on the reweighted snapshot
+	 */
+	ShortestPathTree rebind(RoadGraph reweighted) {
+		return new ShortestPathTree(reweighted, metric, source, cost, prev, order);
+	}
+
+	/**
+	 * @return snapshot the tree was computed on
+	 */
+	public RoadGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * @return metric the tree minimizes
+	 */
+	public Metric getMetric() {
+		return metric;
+	}
+
+	/**
+	 * @return id of the source city at the root of the tree
+	 */
+	public int getSource() {
+		return source;
+	}
+
+	/**
+	 * @return number of cities settled by the search, including the source
+	 */
+	public int size() {
+		return order.length;
+	}
+
+	/**
+	 * @return id of the city settled at position @param i, cities are in order of increasing cost
+	 */
+	public int settled(int i) {
+		return order[i];
+	}
+
+	/**
+	 * @return true if city id @param v was settled, so its cost and path are final
+	 */
+	public boolean isReached(int v) {
+		return cost[v] != Double.POSITIVE_INFINITY;
+	}
+
+	/**
+	 * @return shortest path cost from the source to city id @param v, infinity if not reached
+	 */
+	public double cost(int v) {
+		return cost[v];
+	}
+
+	/**
+	 * @return id of the city before city id @param v on its shortest path, -1 for the source or if not reached
+	 */
+	public int prev(int v) {
+		return prev[v];
+	}
+
+	/**
+	 * Reads the shortest path from the source to a city off the tree
+	 * @param destination is the id of the City the route ends at
+	 * @return the route, not found if destination was not reached
+	 */
+	public RouteResult route(int destination) {
+		if (!isReached(destination))
+			return RouteResult.unreachable(graph, metric, order.length);
+		int length = 0;
+		for (int v = destination; v >= 0; v = prev[v])
+			length++;
+		int[] path = new int[length];
+		for (int v = destination; v >= 0; v = prev[v])
+			path[--length] = v;
+		return new RouteResult(graph, metric, cost[destination], path, order.length);
+	}
+}
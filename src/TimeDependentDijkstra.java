@@ -0,0 +1,139 @@
+import java.util.Arrays;
+import net.datastructures.IndexedDaryHeap;
+import net.datastructures.Vertex;
+
+/**
+ * TimeDependentDijkstra Class answers "leaving at 8:00, when do I arrive?" over a RoadGraph whose
+ * Highways may have travel time profiles: Dijkstra's algorithm keyed by arrival time, where each
+ * Highway is weighed by its travel time at the moment the route enters it. Highways without a
+ * profile take their fixed travel time.
+ *
+ * Because every profile is FIFO (waiting never gets you there sooner), the earliest arrival at a
+ * city is also the best time to leave it, so each city is settled once, as in the static search.
+ *
+ * The search arrays are reused between searches and only the cities a search reaches are reset
+ * (see SearchWorkspace), so an instance must not be shared between threads.
+ */
+
+public class TimeDependentDijkstra {
+	private final RoadGraph graph;			//snapshot being searched
+	private final IndexedDaryHeap queue;	//reached but unsettled city ids keyed by arrival time
+	private final SearchWorkspace work;		//earliest known arrival time and previous city id of each reached city
+	private final int[] order;				//city ids in the order they were settled
+	private final boolean[] isTarget;		//marks the targets of the current search
+
+	/**
+	 * Constructor for the TimeDependentDijkstra class
+	 * @param graph is the snapshot to search
+	 */
+	public TimeDependentDijkstra(RoadGraph graph) {
+		this.graph = graph;
+		int n = graph.numVertices();
+		queue = new IndexedDaryHeap(n);
+		work = new SearchWorkspace(n);
+		order = new int[n];
+		isTarget = new boolean[n];
+	}
+
+	/**
+	 * @return snapshot being searched
+	 */
+	public RoadGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * Finds the earliest arrival time at a City
+	 * @param source is the City the route starts at
+	 * @param destination is the City the route ends at
+	 * @param departure is the time of leaving source, in hours after midnight
+	 * @return time of arriving at destination in hours after midnight of the departure day (above 24 on a
+	 * 		later day), infinity if destination is unreachable
+	 */
+	public double arrival(Vertex<City> source, Vertex<City> destination, double departure) {
+		return departure + route(graph.id(source), graph.id(destination), departure).getCost();
+	}
+
+	/**
+	 * Finds the fastest route between two cities for a given departure time
+	 * @param source is the City the route starts at
+	 * @param destination is the City the route ends at
+	 * @param departure is the time of leaving source, in hours after midnight
+	 * @return the fastest route, its cost is the travel time in hours, not found if destination is unreachable
+	 */
+	public RouteResult route(Vertex<City> source, Vertex<City> destination, double departure) {
+		return route(graph.id(source), graph.id(destination), departure);
+	}
+
+	/**
+	 * Finds the fastest route between two city ids for a given departure time
+	 * @param source is the id of the City the route starts at
+	 * @param destination is the id of the City the route ends at
+	 * @param departure is the time of leaving source, in hours after midnight
+	 * @return the fastest route, its cost is the travel time in hours, not found if destination is unreachable
+	 */
+	public RouteResult route(int source, int destination, double departure) {
+		return search(source, departure, new int[] { destination }).route(destination);
+	}
+
+	/**
+	 * Runs time-dependent Dijkstra from a city until every target is settled
+	 * @param source is the id of the City to search from
+	 * @param departure is the time of leaving source, in hours after midnight
+	 * @param targets is the ids of the cities the caller needs, the search stops once all are settled
+	 * 		(null to search every city)
+	 * @return TIME tree of the settled cities, whose costs are the travel times in hours from departure
+	 */
+	public ShortestPathTree search(int source, double departure, int[] targets) {
+		work.reset();
+		queue.clear();
+
+		int remaining = -1;				//targets not yet settled, -1 if searching every city
+		if (targets != null) {
+			remaining = 0;
+			for (int t : targets)
+				if (!isTarget[t]) {		//count each target once
+					isTarget[t] = true;
+					remaining++;
+				}
+		}
+
+		work.set(source, departure, -1);
+		queue.insert(source, departure);
+		int settled = 0;
+
+		while (!queue.isEmpty() && remaining != 0) {
+			int u = queue.removeMin();
+			order[settled++] = u;
+			if (targets != null && isTarget[u])
+				remaining--;
+
+			double time = work.cost(u);		//leave u as soon as the route gets there
+			double timeOfDay = TravelTimeProfile.timeOfDay(time);		//the same for every arc out of u
+			for (int arc = graph.firstArc(u); arc < graph.endArc(u); arc++) {
+				int v = graph.head(arc);
+				double reached = time + graph.travelTimeOfDay(arc, timeOfDay);
+				if (reached < work.cost(v)) {		//earlier arrival at v found
+					work.set(v, reached, u);
+					queue.insertOrDecrease(v, reached);
+				}
+			}
+		}
+
+		if (targets != null)
+			for (int t : targets)
+				isTarget[t] = false;
+
+		// copy out only the settled cities as travel times from departure
+		double[] cost = new double[graph.numVertices()];
+		int[] parent = new int[graph.numVertices()];
+		Arrays.fill(cost, Double.POSITIVE_INFINITY);
+		Arrays.fill(parent, -1);
+		for (int i = 0; i < settled; i++) {
+			int v = order[i];
+			cost[v] = work.cost(v) - departure;
+			parent[v] = work.prev(v);
+		}
+		return new ShortestPathTree(graph, Metric.TIME, source, cost, parent, Arrays.copyOf(order, settled));
+	}
+}
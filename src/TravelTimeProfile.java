@@ -0,0 +1,125 @@
+/**
+ * TravelTimeProfile Class is the immutable travel time of a Highway as a function of the time of day
+ * it is entered, such as a rush-hour curve: Travel times are given at a few departure times
+ * (breakpoints) and interpolated linearly in between, wrapping around midnight, so the same
+ * profile repeats every day.
+ *
+ * Every profile satisfies the FIFO property: leaving later never means arriving earlier, that is
+ * the travel time never falls by more than one hour per hour of later departure. Time-dependent
+ * Dijkstra relies on this to settle every city once.
+ */
+
+public class TravelTimeProfile {
+	public static final double DAY = 24.0;	//hours after which every profile repeats
+
+	private final double[] departures;		//breakpoint departure times in hours after midnight, increasing, in [0, DAY)
+	private final double[] hours;			//travel time in hours when entering at each breakpoint
+	private final double[] slopes;			//change in travel time per hour of later departure after each breakpoint
+
+	/**
+	 * Constructor for the TravelTimeProfile class
+	 * @param departures is the breakpoint departure times in hours after midnight, each in [0, 24), in any order
+	 * @param hours is the travel time in hours when entering the Highway at each departure time
+	 * @throws IllegalArgumentException if the arrays are empty or of different lengths, a departure time
+	 * 		is repeated or outside the day, a travel time is negative, or the profile is not FIFO
+	 */
+	public TravelTimeProfile(double[] departures, double[] hours) throws IllegalArgumentException {
+		if (departures.length == 0 || departures.length != hours.length)
+			throw new IllegalArgumentException("Need one travel time per departure time, and at least one");
+		this.departures = departures.clone();
+		this.hours = hours.clone();
+		for (int i = 1; i < this.departures.length; i++) {		//insertion sort by departure time, profiles are short
+			double t = this.departures[i], h = this.hours[i];
+			int j = i - 1;
+			while (j >= 0 && this.departures[j] > t) {
+				this.departures[j + 1] = this.departures[j];
+				this.hours[j + 1] = this.hours[j];
+				j--;
+			}
+			this.departures[j + 1] = t;
+			this.hours[j + 1] = h;
+		}
+		for (int i = 0; i < this.departures.length; i++) {
+			if (!(this.departures[i] >= 0 && this.departures[i] < DAY))
+				throw new IllegalArgumentException("Departure time outside the day: " + this.departures[i]);
+			if (!(this.hours[i] >= 0))
+				throw new IllegalArgumentException("Travel time must not be negative: " + this.hours[i]);
+			if (i > 0 && this.departures[i] == this.departures[i - 1])
+				throw new IllegalArgumentException("Departure time given twice: " + this.departures[i]);
+		}
+
+		// FIFO: arriving at departure + travel time must not decrease from one breakpoint to the next
+		int k = this.departures.length;
+		slopes = new double[k];
+		for (int i = 0; i < k; i++) {
+			int j = (i + 1) % k;
+			double next = this.departures[j] + (j == 0 ? DAY : 0);		//the last breakpoint wraps to the first of the next day
+			if (next + this.hours[j] < this.departures[i] + this.hours[i])
+				throw new IllegalArgumentException("Travel time profile is not FIFO: leaving at " + this.departures[j]
+						+ " arrives before leaving at " + this.departures[i]);
+			slopes[i] = (this.hours[j] - this.hours[i]) / (next - this.departures[i]);
+		}
+	}
+
+	/**
+	 * @return number of breakpoints
+	 */
+	public int size() {
+		return departures.length;
+	}
+
+	/**
+	 * @return departure time in hours after midnight of breakpoint @param i, in increasing order
+	 */
+	public double departure(int i) {
+		return departures[i];
+	}
+
+	/**
+	 * @return travel time in hours of breakpoint @param i
+	 */
+	public double hours(int i) {
+		return hours[i];
+	}
+
+	/**
+	 * @return change in travel time per hour of later departure between breakpoint @param i and the next one
+	 */
+	public double slope(int i) {
+		return slopes[i];
+	}
+
+	/**
+	 * @param departure is the time the Highway is entered, in hours after midnight of the first day (may exceed 24)
+	 * @return travel time in hours when entering the Highway at departure
+	 */
+	public double travelTime(double departure) {
+		return travelTime(departures, hours, slopes, 0, departures.length, timeOfDay(departure));
+	}
+
+	/**
+	 * @return @param time in hours after midnight of the first day, as hours after the last midnight
+	 */
+	static double timeOfDay(double time) {
+		return (time >= 0 && time < DAY) ? time : time - DAY * Math.floor(time / DAY);
+	}
+
+	/**
+	 * Evaluates a profile stored in a slice of shared breakpoint arrays, as RoadGraph keeps them
+	 * @param departures is the breakpoint departure times, increasing within the slice
+	 * @param hours is the travel time at each breakpoint
+	 * @param slopes is the slope after each breakpoint, as @method slope returns
+	 * @param from is the index of the profile's first breakpoint
+	 * @param to is the index one past the profile's last breakpoint
+	 * @param t is the time of day the Highway is entered, in [0, 24) as @method timeOfDay returns
+	 * @return travel time in hours when entering at t
+	 */
+	static double travelTime(double[] departures, double[] hours, double[] slopes, int from, int to, double t) {
+		if (t < departures[from])		//before the first breakpoint, on the segment from the last one of the previous day
+			return hours[to - 1] + slopes[to - 1] * (t + DAY - departures[to - 1]);
+		int i = from;					//profiles are short, a scan finds the last breakpoint at or before t
+		while (i + 1 < to && departures[i + 1] <= t)
+			i++;
+		return hours[i] + slopes[i] * (t - departures[i]);
+	}
+}
@@ -0,0 +1,205 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.datastructures.Edge;
+import net.datastructures.Vertex;
+
+/**
+ * TreeCache Class keeps recently computed shortest path trees, keyed by source city and metric:
+ * Asking again for a recent source, or toggling back to a recent metric, returns the stored
+ * tree instead of running Dijkstra's algorithm again.
+ *
+ * The cache is bounded both by number of trees and by their approximate size in bytes, and
+ * evicts the least recently used trees first. Hits and misses are counted.
+ * Registered as a HighwayListener of its RoadMap, the cache follows Highway changes by repairing
+ * the cached trees the change affects (see TreeRepair) and moving the rest to the new snapshot.
+ * Methods are synchronized, so one cache can be shared between threads.
+ */
+
+public class TreeCache implements HighwayListener {
+	private Dijkstra search;			//computes the trees on a miss, replaced when the snapshot is reweighted
+	private final int maxTrees;			//largest number of trees kept
+	private final long maxBytes;		//largest total approximate size of the trees kept
+	private long bytes = 0;				//current total approximate size
+	private long hits = 0, misses = 0;
+
+	//trees by key, iterated from least to most recently used
+	private final LinkedHashMap<Long, ShortestPathTree> trees = new LinkedHashMap<Long, ShortestPathTree>(16, 0.75f, true);
+
+	/**
+	 * Constructor for the TreeCache class, bounded by number of trees only
+	 * @param graph is the snapshot the trees are computed on
+	 * @param maxTrees is the largest number of trees to keep
+	 */
+	public TreeCache(RoadGraph graph, int maxTrees) {
+		this(graph, maxTrees, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Constructor for the TreeCache class
+	 * @param graph is the snapshot the trees are computed on
+	 * @param maxTrees is the largest number of trees to keep
+	 * @param maxBytes is the largest total approximate size in bytes of the trees kept
+	 */
+	public TreeCache(RoadGraph graph, int maxTrees, long maxBytes) {
+		this.search = new Dijkstra(graph);
+		this.maxTrees = maxTrees;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @return snapshot the trees are computed on
+	 */
+	public synchronized RoadGraph getGraph() {
+		return search.getGraph();
+	}
+
+	/**
+	 * Returns the full shortest path tree of a City, computing it on a miss
+	 * @param source is the City at the root of the tree
+	 * @param metric is the weight the tree minimizes
+	 * @return the shortest path tree
+	 */
+	public ShortestPathTree get(Vertex<City> source, Metric metric) {
+		return get(getGraph().id(source), metric);
+	}
+
+	/**
+	 * Returns the full shortest path tree of a city id, computing it on a miss
+	 * @param source is the id of the City at the root of the tree
+	 * @param metric is the weight the tree minimizes
+	 * @return the shortest path tree
+	 */
+	public synchronized ShortestPathTree get(int source, Metric metric) {
+		Long key = key(source, metric);
+		ShortestPathTree tree = trees.get(key);		//also marks the tree most recently used
+		if (tree != null) {
+			hits++;
+			return tree;
+		}
+		misses++;
+		tree = search.tree(source, metric);
+		put(key, tree);
+		return tree;
+	}
+
+	/**
+	 * Returns a tree only if it is already cached, without counting a hit or miss
+	 * @return the cached tree of city id @param source under @param metric, or null
+	 */
+	public synchronized ShortestPathTree peek(int source, Metric metric) {
+		return trees.get(key(source, metric));
+	}
+
+	/**
+	 * Returns a tree if it is already cached, counting a hit, or null without counting anything;
+	 * the caller then computes the tree elsewhere and stores it with @method putAll
+	 * @return the cached tree of city id @param source under @param metric, or null
+	 */
+	public synchronized ShortestPathTree lookup(int source, Metric metric) {
+		ShortestPathTree tree = trees.get(key(source, metric));
+		if (tree != null)
+			hits++;
+		return tree;
+	}
+
+	/**
+	 * Stores the trees of one lookup that missed, computed elsewhere, and counts the miss
+	 * @param computed are full shortest path trees on this cache's snapshot, such as every metric of one source
+	 */
+	public synchronized void putAll(ShortestPathTree[] computed) {
+		misses++;
+		for (ShortestPathTree tree : computed)
+			put(key(tree.getSource(), tree.getMetric()), tree);
+	}
+
+	/**
+	 * Stores a tree computed elsewhere, replacing any cached tree with the same source and metric
+	 * @param tree is a full shortest path tree on this cache's snapshot
+	 */
+	public synchronized void put(ShortestPathTree tree) {
+		put(key(tree.getSource(), tree.getMetric()), tree);
+	}
+
+	/**
+	 * Repairs the cached trees after a Highway changed and moves the cache to the reweighted snapshot
+	 * A cache built on any other snapshot than @param before is left as it is
+	 */
+	public synchronized void highwayChanged(Edge<Highway> highway, RoadGraph before, RoadGraph after, int[] arcs) {
+		if (search.getGraph() != before)
+			return;
+		search = new Dijkstra(after);
+		TreeRepair repair = new TreeRepair(after);
+		for (Map.Entry<Long, ShortestPathTree> entry : trees.entrySet()) {		//replacing values keeps the recency order
+			ShortestPathTree tree = entry.getValue();
+			ShortestPathTree repaired = repair.repair(tree, arcs);
+			bytes += sizeOf(repaired) - sizeOf(tree);
+			entry.setValue(repaired);
+		}
+	}
+
+	/**
+	 * @return number of lookups answered from the cache
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return number of lookups that had to compute a tree
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return number of trees currently cached
+	 */
+	public synchronized int size() {
+		return trees.size();
+	}
+
+	/**
+	 * @return approximate size in bytes of the trees currently cached
+	 */
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Removes every cached tree, counters are kept
+	 */
+	public synchronized void clear() {
+		trees.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Stores a tree under a key and evicts least recently used trees until within bounds
+	 */
+	private void put(Long key, ShortestPathTree tree) {
+		ShortestPathTree old = trees.put(key, tree);
+		if (old != null)
+			bytes -= sizeOf(old);
+		bytes += sizeOf(tree);
+		Iterator<ShortestPathTree> eldest = trees.values().iterator();
+		while ((trees.size() > maxTrees || bytes > maxBytes) && trees.size() > 1) {
+			bytes -= sizeOf(eldest.next());
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * @return cache key of city id @param source under @param metric
+	 */
+	private static Long key(int source, Metric metric) {
+		return (long) source * Metric.values().length + metric.ordinal();
+	}
+
+	/**
+	 * @return approximate size in bytes of @param tree: cost, prev and settled order arrays
+	 */
+	private static long sizeOf(ShortestPathTree tree) {
+		return 12L * tree.getGraph().numVertices() + 4L * tree.size();
+	}
+}
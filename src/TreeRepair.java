@@ -0,0 +1,209 @@
+import java.util.Arrays;
+import net.datastructures.IndexedDaryHeap;
+
+/**
+ * TreeRepair Class updates a full shortest path tree after some arc weights changed, touching only
+ * the cities whose shortest paths actually change (dynamic SSSP in the style of Ramalingam and Reps)
+ * instead of searching the whole graph again.
+ *
+ * If an arc got heavier, only the subtree hanging below it can get worse: those cities are reset,
+ * seeded with their best incoming arc from the rest of the tree, and settled again by a Dijkstra
+ * search confined to the subtree. If an arc got lighter, its head is seeded with the improved cost
+ * and the improvement is propagated by a Dijkstra search that stops wherever it no longer helps.
+ * A tree the changed arcs do not affect is returned as is, rebound to the new snapshot.
+ *
+ * The search arrays are reused between repairs, so an instance must not be shared between threads.
+ */
+
+public class TreeRepair {
+	private final RoadGraph graph;			//snapshot after the change
+	private final IndexedDaryHeap queue;	//cities being settled again
+	private final boolean[] affected;		//true for cities below a heavier tree arc
+	private final boolean[] changed;		//true for cities settled again by the repair
+	private final int[] changedOrder;		//changed city ids in the order they were settled again
+	private int numChanged;
+
+	/**
+	 * Constructor for the TreeRepair class
+	 * @param graph is the snapshot after the change, such as RoadGraph.reweighted returns
+	 */
+	public TreeRepair(RoadGraph graph) {
+		this.graph = graph;
+		int n = graph.numVertices();
+		queue = new IndexedDaryHeap(n);
+		affected = new boolean[n];
+		changed = new boolean[n];
+		changedOrder = new int[n];
+	}
+
+	/**
+	 * Repairs a tree computed before some arcs changed weight
+	 * @param tree is a full shortest path tree on a snapshot with the same topology as this one
+	 * @param arcs are the outgoing arcs whose weights may differ between the two snapshots
+	 * @return a shortest path tree on this snapshot
+	 */
+	public ShortestPathTree repair(ShortestPathTree tree, int[] arcs) {
+		RoadGraph before = tree.getGraph();
+		Metric metric = tree.getMetric();
+		boolean onTree = false, lighter = false, improves = false;
+		for (int arc : arcs) {
+			int u = graph.origin(arc), v = graph.head(arc);
+			double weight = graph.weight(arc, metric);
+			if (weight > before.weight(arc, metric) && tree.prev(v) == u)
+				onTree = true;		//a shortest path used the arc
+			else if (weight < before.weight(arc, metric)) {
+				lighter = true;
+				if (tree.cost(u) + weight < tree.cost(v))
+					improves = true;		//a shortest path can now use the arc
+			}
+		}
+		if (!onTree && !improves)
+			return tree.rebind(graph);
+
+		int n = graph.numVertices();
+		double[] cost = new double[n];
+		int[] prev = new int[n];
+		for (int v = 0; v < n; v++) {
+			cost[v] = tree.cost(v);
+			prev[v] = tree.prev(v);
+		}
+		Arrays.fill(affected, false);
+		Arrays.fill(changed, false);
+		numChanged = 0;
+		if (onTree)
+			repairHeavier(tree, arcs, metric, cost, prev);
+		if (lighter)
+			repairLighter(arcs, metric, cost, prev);
+		return new ShortestPathTree(graph, metric, tree.getSource(), cost, prev, mergedOrder(tree, cost));
+	}
+
+	/**
+	 * Resettles the subtrees below tree arcs that got heavier
+	 */
+	private void repairHeavier(ShortestPathTree tree, int[] arcs, Metric metric, double[] cost, int[] prev) {
+		RoadGraph before = tree.getGraph();
+		for (int arc : arcs)		//a heavier tree arc puts its head's subtree at risk
+			if (graph.weight(arc, metric) > before.weight(arc, metric) && prev[graph.head(arc)] == graph.origin(arc))
+				affected[graph.head(arc)] = true;
+
+		// cities are settled after their previous city, so one pass in settled order marks every subtree
+		for (int i = 0; i < tree.size(); i++) {
+			int v = tree.settled(i);
+			if (prev[v] >= 0 && affected[prev[v]])
+				affected[v] = true;
+		}
+		for (int i = 0; i < tree.size(); i++) {
+			int v = tree.settled(i);
+			if (affected[v]) {
+				cost[v] = Double.POSITIVE_INFINITY;
+				prev[v] = -1;
+			}
+		}
+
+		// seed each affected city with its best incoming arc from an unaffected city
+		double[] inWeights = graph.inWeights(metric);
+		queue.clear();
+		for (int i = 0; i < tree.size(); i++) {
+			int v = tree.settled(i);
+			if (!affected[v])
+				continue;
+			for (int arc = graph.firstInArc(v); arc < graph.endInArc(v); arc++) {
+				int u = graph.tail(arc);
+				if (!affected[u] && cost[u] + inWeights[arc] < cost[v]) {
+					cost[v] = cost[u] + inWeights[arc];
+					prev[v] = u;
+				}
+			}
+			if (cost[v] != Double.POSITIVE_INFINITY)
+				queue.insert(v, cost[v]);
+		}
+
+		// settle the affected cities again, costs outside the subtrees cannot change
+		double[] weights = graph.weights(metric);
+		while (!queue.isEmpty()) {
+			int u = queue.removeMin();
+			changed[u] = true;
+			changedOrder[numChanged++] = u;
+			for (int arc = graph.firstArc(u); arc < graph.endArc(u); arc++) {
+				int v = graph.head(arc);
+				if (affected[v] && cost[u] + weights[arc] < cost[v]) {
+					cost[v] = cost[u] + weights[arc];
+					prev[v] = u;
+					queue.insertOrDecrease(v, cost[v]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Propagates the improvements from arcs that got lighter
+	 */
+	private void repairLighter(int[] arcs, Metric metric, double[] cost, int[] prev) {
+		double[] weights = graph.weights(metric);
+		queue.clear();
+		for (int arc : arcs) {
+			int u = graph.origin(arc), v = graph.head(arc);
+			if (cost[u] + weights[arc] < cost[v]) {		//shorter path through the changed arc
+				cost[v] = cost[u] + weights[arc];
+				prev[v] = u;
+				queue.insertOrDecrease(v, cost[v]);
+			}
+		}
+		int start = numChanged;
+		while (!queue.isEmpty()) {
+			int u = queue.removeMin();
+			if (!changed[u]) {
+				changed[u] = true;
+				changedOrder[numChanged++] = u;
+			}
+			for (int arc = graph.firstArc(u); arc < graph.endArc(u); arc++) {
+				int v = graph.head(arc);
+				if (cost[u] + weights[arc] < cost[v]) {
+					cost[v] = cost[u] + weights[arc];
+					prev[v] = u;
+					queue.insertOrDecrease(v, cost[v]);
+				}
+			}
+		}
+		if (start > 0)		//both kinds of change, the two settled runs must be sorted together
+			sortChanged(cost);
+	}
+
+	/**
+	 * Merges the unchanged cities, still in increasing cost order, with the cities settled again
+	 * Affected cities that were not settled again are no longer reachable and are left out
+	 * @return settled city ids of the repaired tree in order of increasing cost
+	 */
+	private int[] mergedOrder(ShortestPathTree tree, double[] cost) {
+		int reached = 0;
+		for (int i = 0; i < tree.size(); i++)
+			if (!changed[tree.settled(i)] && !affected[tree.settled(i)])
+				reached++;
+		int[] order = new int[reached + numChanged];
+		int i = 0, j = 0, k = 0;
+		while (k < order.length) {
+			while (i < tree.size() && (changed[tree.settled(i)] || affected[tree.settled(i)]))	//skip cities settled again
+				i++;
+			if (j == numChanged || (i < tree.size() && cost[tree.settled(i)] <= cost[changedOrder[j]]))
+				order[k++] = tree.settled(i++);
+			else
+				order[k++] = changedOrder[j++];
+		}
+		return order;
+	}
+
+	/**
+	 * Sorts the changed cities by their new cost (insertion sort, the two runs are each sorted)
+	 */
+	private void sortChanged(double[] cost) {
+		for (int i = 1; i < numChanged; i++) {
+			int v = changedOrder[i];
+			int j = i - 1;
+			while (j >= 0 && cost[changedOrder[j]] > cost[v]) {
+				changedOrder[j + 1] = changedOrder[j];
+				j--;
+			}
+			changedOrder[j + 1] = v;
+		}
+	}
+}
@@ -2,6 +2,10 @@ package net.datastructures;
 
 import java.util.Set;
 import java.util.HashSet;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToDoubleFunction;
 
 /**
  * A collection of graph algorithms.
@@ -234,6 +238,112 @@ public class GraphAlgorithms {
     return tree;
   }
 
+  /**
+   * Computes shortest-path distances between every pair of vertices of g.
+   *
+   * The edge's element is assumed to be its integral weight.
+   *
+   * @see #allPairsShortestPathLengths(Graph, ToDoubleFunction, ForkJoinPool)
+   */
+  public static <V> double[][] allPairsShortestPathLengths(Graph<V,Integer> g) {
+    return allPairsShortestPathLengths(g, Integer::doubleValue, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Computes shortest-path distances between every pair of vertices of g,
+   * running one Dijkstra search per source in parallel on the given pool.
+   *
+   * The graph is first copied into primitive adjacency arrays; the sources are then split
+   * into ranges across the pool, and every leaf task allocates one indexed heap for the few
+   * searches it runs, writing distances straight into its rows of the result.
+   *
+   * @param g Graph instance
+   * @param weight maps an edge's element to its nonnegative weight
+   * @param pool the fork-join pool the searches run on
+   * @return matrix d such that d[i][j] is the distance from the i-th to the j-th vertex in the
+   * iteration order of g.vertices(), or Double.POSITIVE_INFINITY if unreachable
+   * @throws IllegalArgumentException if an edge has a negative weight
+   */
+  public static <V,E> double[][] allPairsShortestPathLengths(Graph<V,E> g,
+                    ToDoubleFunction<E> weight, ForkJoinPool pool) throws IllegalArgumentException {
+    // number the vertices in iteration order
+    int n = g.numVertices();
+    Map<Vertex<V>, Integer> index = new ProbeHashMap<>();
+    int k = 0;
+    for (Vertex<V> v : g.vertices())
+      index.put(v, k++);
+
+    // copy the outgoing edges into offset, head and weight arrays
+    final int[] offsets = new int[n+1];
+    k = 0;
+    for (Vertex<V> v : g.vertices()) {
+      offsets[k+1] = offsets[k] + g.outDegree(v);
+      k++;
+    }
+    final int[] heads = new int[offsets[n]];
+    final double[] weights = new double[offsets[n]];
+    int arc = 0;
+    for (Vertex<V> u : g.vertices())
+      for (Edge<E> e : g.outgoingEdges(u)) {
+        heads[arc] = index.get(g.opposite(u, e));
+        weights[arc] = weight.applyAsDouble(e.getElement());
+        if (weights[arc] < 0)
+          throw new IllegalArgumentException("Negative edge weight");
+        arc++;
+      }
+
+    final double[][] d = new double[n][];
+    pool.invoke(new AllPairsTask(0, n, offsets, heads, weights, d));
+    return d;
+  }
+
+  /** Fork-join task running the single-source searches of a range of sources. */
+  private static class AllPairsTask extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private static final int LEAF_SOURCES = 8;       // sources searched by one leaf task
+    private final int from, to;                      // sources from (inclusive) to (exclusive)
+    private final int[] offsets, heads;
+    private final double[] weights;
+    private final double[][] d;
+
+    AllPairsTask(int from, int to, int[] offsets, int[] heads, double[] weights, double[][] d) {
+      this.from = from;
+      this.to = to;
+      this.offsets = offsets;
+      this.heads = heads;
+      this.weights = weights;
+      this.d = d;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from > LEAF_SOURCES) {                // split the range in half
+        int mid = (from + to) >>> 1;
+        invokeAll(new AllPairsTask(from, mid, offsets, heads, weights, d),
+                  new AllPairsTask(mid, to, offsets, heads, weights, d));
+        return;
+      }
+      IndexedDaryHeap pq = new IndexedDaryHeap(offsets.length - 1);   // reused by the searches of this leaf
+      for (int src = from; src < to; src++) {
+        double[] dist = new double[offsets.length - 1];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[src] = 0;
+        pq.insert(src, 0);
+        while (!pq.isEmpty()) {
+          int u = pq.removeMin();
+          for (int a = offsets[u]; a < offsets[u+1]; a++) {
+            int v = heads[a];
+            if (dist[u] + weights[a] < dist[v]) {    // better path to v?
+              dist[v] = dist[u] + weights[a];
+              pq.insertOrDecrease(v, dist[v]);
+            }
+          }
+        }
+        d[src] = dist;
+      }
+    }
+  }
+
   /**
    * Computes a minimum spanning tree of connected, weighted graph g using Kruskal's algorithm.
    *
@@ -0,0 +1,184 @@
+package net.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * An adaptable min-heap of int ids in the range [0, capacity) keyed by primitive doubles.
+ *
+ * The heap is d-ary and array-based: the ids and their keys are kept in parallel arrays
+ * in heap order, and a position array maps each id to its current heap index (or -1).
+ * This allows decreaseKey by id without entry objects or a locator map, and after
+ * construction no operation allocates, so one instance can be reused across searches.
+ */
+public class IndexedDaryHeap {
+  /** default number of children per node; 4 keeps the tree shallow without wide scans */
+  public static final int DEFAULT_ARITY = 4;
+
+  private final int arity;
+  private final int[] heap;        // ids in heap order
+  private final double[] keys;     // keys[j] is the key of heap[j]
+  private final int[] pos;         // pos[id] is the heap index of id, or -1 if absent
+  private int size = 0;
+
+  /**
+   * Creates an empty 4-ary heap for ids in the range [0, capacity).
+   * @param capacity one more than the largest id the heap will hold
+   */
+  public IndexedDaryHeap(int capacity) { this(capacity, DEFAULT_ARITY); }
+
+  /**
+   * Creates an empty d-ary heap for ids in the range [0, capacity).
+   * @param capacity one more than the largest id the heap will hold
+   * @param arity number of children per node (at least 2)
+   * @throws IllegalArgumentException if arity is less than 2
+   */
+  public IndexedDaryHeap(int capacity, int arity) throws IllegalArgumentException {
+    if (arity < 2) throw new IllegalArgumentException("Arity must be at least 2");
+    this.arity = arity;
+    heap = new int[capacity];
+    keys = new double[capacity];
+    pos = new int[capacity];
+    Arrays.fill(pos, -1);
+  }
+
+  // protected utilities
+  protected int parent(int j) { return (j-1) / arity; }
+  protected int firstChild(int j) { return arity*j + 1; }
+
+  /** Places id with the given key at heap index j. */
+  private void place(int j, int id, double key) {
+    heap[j] = id;
+    keys[j] = key;
+    pos[id] = j;
+  }
+
+  /** Moves the id at index j higher, if necessary, to restore the heap property. */
+  protected void upheap(int j) {
+    int id = heap[j];
+    double key = keys[j];
+    while (j > 0) {            // continue until reaching root (or break statement)
+      int p = parent(j);
+      if (key >= keys[p]) break;            // heap property verified
+      place(j, heap[p], keys[p]);           // move the parent down a level
+      j = p;
+    }
+    place(j, id, key);
+  }
+
+  /** Moves the id at index j lower, if necessary, to restore the heap property. */
+  protected void downheap(int j) {
+    int id = heap[j];
+    double key = keys[j];
+    while (true) {
+      int first = firstChild(j);
+      if (first >= size) break;             // j is a leaf
+      int last = Math.min(first + arity, size);
+      int smallChild = first;
+      for (int c = first + 1; c < last; c++)
+        if (keys[c] < keys[smallChild])
+          smallChild = c;
+      if (keys[smallChild] >= key) break;   // heap property has been restored
+      place(j, heap[smallChild], keys[smallChild]);   // move the child up a level
+      j = smallChild;
+    }
+    place(j, id, key);
+  }
+
+  /** Validates that id is within the range of this heap. */
+  private void checkId(int id) throws IllegalArgumentException {
+    if (id < 0 || id >= pos.length)
+      throw new IllegalArgumentException("Id out of range: " + id);
+  }
+
+  // public methods
+
+  /** Returns the number of ids currently in the heap. */
+  public int size() { return size; }
+
+  /** Tests whether the heap is empty. */
+  public boolean isEmpty() { return size == 0; }
+
+  /** Returns one more than the largest id the heap can hold. */
+  public int capacity() { return pos.length; }
+
+  /** Tests whether the given id is currently in the heap. */
+  public boolean contains(int id) {
+    checkId(id);
+    return pos[id] >= 0;
+  }
+
+  /**
+   * Returns the current key of an id in the heap.
+   * @throws IllegalArgumentException if the id is not in the heap
+   */
+  public double key(int id) throws IllegalArgumentException {
+    if (!contains(id)) throw new IllegalArgumentException("Id not in heap: " + id);
+    return keys[pos[id]];
+  }
+
+  /**
+   * Inserts an id with the given key.
+   * @throws IllegalArgumentException if the id is out of range or already in the heap
+   */
+  public void insert(int id, double key) throws IllegalArgumentException {
+    if (contains(id)) throw new IllegalArgumentException("Id already in heap: " + id);
+    place(size, id, key);
+    upheap(size++);
+  }
+
+  /**
+   * Lowers the key of an id already in the heap.
+   * @throws IllegalArgumentException if the id is not in the heap or the key would increase
+   */
+  public void decreaseKey(int id, double key) throws IllegalArgumentException {
+    if (key > key(id)) throw new IllegalArgumentException("Key would increase");
+    keys[pos[id]] = key;
+    upheap(pos[id]);
+  }
+
+  /**
+   * Inserts the id if absent, or lowers its key if the given key is smaller.
+   * This is the relaxation step of Dijkstra-like searches.
+   * @return true if the heap was changed
+   */
+  public boolean insertOrDecrease(int id, double key) {
+    checkId(id);
+    int j = pos[id];
+    if (j < 0) {
+      place(size, id, key);
+      upheap(size++);
+      return true;
+    }
+    if (key < keys[j]) {
+      keys[j] = key;
+      upheap(j);
+      return true;
+    }
+    return false;
+  }
+
+  /** Returns (but does not remove) an id with minimal key, or -1 if empty. */
+  public int min() { return (size == 0) ? -1 : heap[0]; }
+
+  /** Returns the minimal key, or positive infinity if empty. */
+  public double minKey() { return (size == 0) ? Double.POSITIVE_INFINITY : keys[0]; }
+
+  /** Removes and returns an id with minimal key, or -1 if empty. */
+  public int removeMin() {
+    if (size == 0) return -1;
+    int answer = heap[0];
+    pos[answer] = -1;
+    if (--size > 0) {
+      place(0, heap[size], keys[size]);      // move the last entry to the root
+      downheap(0);                           // then fix new root
+    }
+    return answer;
+  }
+
+  /** Removes every id from the heap, in time proportional to the current size. */
+  public void clear() {
+    for (int j=0; j < size; j++)
+      pos[heap[j]] = -1;
+    size = 0;
+  }
+}